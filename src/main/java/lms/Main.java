@@ -37,6 +37,7 @@ public class Main {
                 new PerDayFinePolicy(50),
                 dateProvider
         );
+        libraryService.setParallelSearchThreshold(config.getSearchParallelThreshold());
         if (config.isDemoEnabled()) {
             DemoDataSeeder.seedIfEmpty(libraryService);
         }
@@ -2,13 +2,19 @@ package lms.report;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.function.Consumer;
 import lms.exception.StorageException;
 
 public class CsvExporter {
     public void export(Path path, List<String> headers, List<String[]> rows) {
+        export(path, headers, rows::forEach);
+    }
+
+    public void export(Path path, List<String> headers, RowSource rows) {
         try {
             if (path.getParent() != null) {
                 Files.createDirectories(path.getParent());
@@ -18,11 +24,17 @@ public class CsvExporter {
                     writer.write(join(headers.toArray(new String[0])));
                     writer.newLine();
                 }
-                for (String[] row : rows) {
-                    writer.write(join(row));
-                    writer.newLine();
-                }
+                rows.forEachRow(row -> {
+                    try {
+                        writer.write(join(row));
+                        writer.newLine();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
             }
+        } catch (UncheckedIOException ex) {
+            throw new StorageException("Failed to export CSV to " + path, ex.getCause());
         } catch (IOException ex) {
             throw new StorageException("Failed to export CSV to " + path, ex);
         }
@@ -49,4 +61,8 @@ public class CsvExporter {
         }
         return escaped;
     }
-}
\ No newline at end of file
+
+    public interface RowSource {
+        void forEachRow(Consumer<String[]> sink);
+    }
+}
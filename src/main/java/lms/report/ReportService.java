@@ -2,8 +2,15 @@ package lms.report;
 
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import lms.model.Book;
 import lms.model.BookCopy;
@@ -11,14 +18,20 @@ import lms.model.Loan;
 import lms.model.Member;
 import lms.service.LibraryService;
 import lms.storage.LibraryStorage;
+import lms.storage.ReportQueries;
 import lms.storage.Repository;
+import lms.storage.query.BookFields;
+import lms.storage.query.LoanFields;
+import lms.storage.query.Query;
 import lms.util.DateProvider;
 
 public class ReportService {
+    private static final int LOOKUP_BATCH_SIZE = 500;
     private final Repository<Book, String> books;
     private final Repository<BookCopy, String> copies;
     private final Repository<Member, String> members;
     private final Repository<Loan, String> loans;
+    private final Optional<ReportQueries> reportQueries;
     private final LibraryService libraryService;
     private final DateProvider dateProvider;
 
@@ -27,57 +40,108 @@ public class ReportService {
         this.copies = storage.copies();
         this.members = storage.members();
         this.loans = storage.loans();
+        this.reportQueries = storage.reportQueries();
         this.libraryService = libraryService;
         this.dateProvider = dateProvider;
     }
 
     public List<OverdueReportItem> buildOverdueReport(LocalDate today) {
+        List<OverdueReportItem> items = new ArrayList<>();
+        forEachOverdue(today, items::add);
+        return items;
+    }
+
+    public void forEachOverdue(LocalDate today, Consumer<OverdueReportItem> action) {
         LocalDate date = today == null ? dateProvider.today() : today;
-        return loans.findAll().stream()
-                .filter(loan -> loan.isOverdue(date))
-                .map(loan -> {
-                    BookCopy copy = copies.findById(loan.getCopyId()).orElse(null);
-                    Book book = copy == null ? null : books.findById(copy.getIsbn()).orElse(null);
-                    Member member = members.findById(loan.getMemberId()).orElse(null);
-                    long days = ChronoUnit.DAYS.between(loan.getDueDate(), date);
-                    long fine = libraryService.calculateFineCents(loan, date);
-                    return new OverdueReportItem(
-                            book == null ? "-" : book.getIsbn(),
-                            book == null ? "-" : book.getTitle(),
-                            member == null ? loan.getMemberId() : member.getMemberId(),
-                            member == null ? "-" : member.getName(),
-                            loan.getDueDate(),
-                            days,
-                            fine
-                    );
-                })
-                .collect(Collectors.toList());
+        if (reportQueries.isPresent()) {
+            reportQueries.get().forEachOverdueLoan(date, row -> action.accept(toOverdueItem(row.getLoan(),
+                    row.getIsbn(), row.getTitle(), row.getMemberName(), date)));
+            return;
+        }
+        Query<Loan> overdue = Query.<Loan>all()
+                .isNull(LoanFields.RETURN_DATE)
+                .lessThan(LoanFields.DUE_DATE, date);
+        List<Loan> batch = new ArrayList<>();
+        loans.forEach(overdue, loan -> {
+            batch.add(loan);
+            if (batch.size() == LOOKUP_BATCH_SIZE) {
+                emitOverdue(batch, date, action);
+                batch.clear();
+            }
+        });
+        emitOverdue(batch, date, action);
     }
 
     public List<MemberLoanReportItem> buildMemberReport(String memberId) {
-        return libraryService.getLoansForMember(memberId).stream()
+        List<Loan> active = libraryService.getLoansForMember(memberId).stream()
                 .filter(loan -> !loan.isReturned())
-                .map(loan -> {
-                    BookCopy copy = copies.findById(loan.getCopyId()).orElse(null);
-                    Book book = copy == null ? null : books.findById(copy.getIsbn()).orElse(null);
-                    return new MemberLoanReportItem(
-                            loan.getLoanId(),
-                            book == null ? "-" : book.getIsbn(),
-                            book == null ? "-" : book.getTitle(),
-                            loan.getCopyId(),
-                            loan.getLoanDate(),
-                            loan.getDueDate()
-                    );
-                })
                 .collect(Collectors.toList());
+        Map<String, BookCopy> copiesById = copies.findAllById(collect(active, Loan::getCopyId));
+        Map<String, Book> booksByIsbn = books.findAllById(collect(copiesById.values(), BookCopy::getIsbn));
+        List<MemberLoanReportItem> items = new ArrayList<>();
+        for (Loan loan : active) {
+            Book book = bookFor(loan, copiesById, booksByIsbn);
+            items.add(new MemberLoanReportItem(
+                    loan.getLoanId(),
+                    book == null ? "-" : book.getIsbn(),
+                    book == null ? "-" : book.getTitle(),
+                    loan.getCopyId(),
+                    loan.getLoanDate(),
+                    loan.getDueDate()
+            ));
+        }
+        return items;
     }
 
     public List<PopularBookItem> buildPopularBooksReport(int limit) {
-        List<Book> all = books.findAll();
-        return all.stream()
-                .sorted(Comparator.comparingInt(Book::getTotalLoans).reversed())
-                .limit(limit)
+        return books.findBy(Query.<Book>all().orderByDescending(BookFields.TOTAL_LOANS).limit(limit)).stream()
                 .map(book -> new PopularBookItem(book.getIsbn(), book.getTitle(), book.getAuthor(), book.getTotalLoans()))
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    private void emitOverdue(List<Loan> batch, LocalDate date, Consumer<OverdueReportItem> action) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, BookCopy> copiesById = copies.findAllById(collect(batch, Loan::getCopyId));
+        Map<String, Book> booksByIsbn = books.findAllById(collect(copiesById.values(), BookCopy::getIsbn));
+        Map<String, Member> membersById = members.findAllById(collect(batch, Loan::getMemberId));
+        for (Loan loan : batch) {
+            Book book = bookFor(loan, copiesById, booksByIsbn);
+            Member member = membersById.get(loan.getMemberId());
+            action.accept(toOverdueItem(loan,
+                    book == null ? null : book.getIsbn(),
+                    book == null ? null : book.getTitle(),
+                    member == null ? null : member.getName(),
+                    date));
+        }
+    }
+
+    private OverdueReportItem toOverdueItem(Loan loan, String isbn, String title, String memberName,
+                                            LocalDate date) {
+        long days = ChronoUnit.DAYS.between(loan.getDueDate(), date);
+        long fine = libraryService.calculateFineCents(loan, date);
+        return new OverdueReportItem(
+                isbn == null ? "-" : isbn,
+                title == null ? "-" : title,
+                loan.getMemberId(),
+                memberName == null ? "-" : memberName,
+                loan.getDueDate(),
+                days,
+                fine
+        );
+    }
+
+    private static Book bookFor(Loan loan, Map<String, BookCopy> copiesById, Map<String, Book> booksByIsbn) {
+        BookCopy copy = copiesById.get(loan.getCopyId());
+        return copy == null ? null : booksByIsbn.get(copy.getIsbn());
+    }
+
+    private static <T> Set<String> collect(Collection<T> items, Function<T, String> key) {
+        Set<String> keys = new HashSet<>();
+        for (T item : items) {
+            keys.add(key.apply(item));
+        }
+        return keys;
+    }
+}
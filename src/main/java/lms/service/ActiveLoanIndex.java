@@ -0,0 +1,81 @@
+package lms.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lms.model.Loan;
+import lms.storage.Repository;
+import lms.storage.query.LoanFields;
+import lms.storage.query.Query;
+
+class ActiveLoanIndex {
+    private final Repository<Loan, String> loans;
+    private final Map<String, Integer> counts = new ConcurrentHashMap<>();
+    private final ThreadLocal<Map<String, Integer>> undoLog = new ThreadLocal<>();
+
+    ActiveLoanIndex(Repository<Loan, String> loans) {
+        this.loans = loans;
+    }
+
+    int activeLoans(String memberId) {
+        return counts.getOrDefault(memberId, 0);
+    }
+
+    void loanOpened(String memberId) {
+        adjust(memberId, 1);
+    }
+
+    void loanClosed(String memberId) {
+        adjust(memberId, -1);
+    }
+
+    synchronized void rebuild() {
+        counts.clear();
+        counts.putAll(scan());
+    }
+
+    boolean matchesStorage() {
+        return scan().equals(new HashMap<>(counts));
+    }
+
+    void beginUndoLog() {
+        undoLog.set(new HashMap<>());
+    }
+
+    void rollbackUndoLog() {
+        Map<String, Integer> changes = undoLog.get();
+        undoLog.remove();
+        if (changes == null) {
+            return;
+        }
+        for (Map.Entry<String, Integer> change : changes.entrySet()) {
+            apply(change.getKey(), -change.getValue());
+        }
+    }
+
+    void clearUndoLog() {
+        undoLog.remove();
+    }
+
+    private void adjust(String memberId, int delta) {
+        Map<String, Integer> changes = undoLog.get();
+        if (changes != null) {
+            changes.merge(memberId, delta, Integer::sum);
+        }
+        apply(memberId, delta);
+    }
+
+    private void apply(String memberId, int delta) {
+        counts.compute(memberId, (id, count) -> {
+            int updated = (count == null ? 0 : count) + delta;
+            return updated <= 0 ? null : updated;
+        });
+    }
+
+    private Map<String, Integer> scan() {
+        Map<String, Integer> scanned = new HashMap<>();
+        loans.forEach(Query.<Loan>all().isNull(LoanFields.RETURN_DATE),
+                loan -> scanned.merge(loan.getMemberId(), 1, Integer::sum));
+        return scanned;
+    }
+}
@@ -0,0 +1,342 @@
+package lms.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lms.model.Book;
+import lms.storage.Repository;
+
+class BookSearchIndex {
+    private static final int MIN_COMPACTION_GARBAGE = 1024;
+    private final Repository<Book, String> books;
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<String, Integer> fieldTerms = new HashMap<>();
+    private final Map<String, Integer> tokenTerms = new HashMap<>();
+    private final List<Term> terms = new ArrayList<>();
+    private final PostingMap postings = new PostingMap();
+    private final GramSet termGrams = new GramSet();
+    private long nextSequence;
+    private int liveDocs;
+    private boolean built;
+
+    BookSearchIndex(Repository<Book, String> books) {
+        this.books = books;
+    }
+
+    synchronized void rebuild() {
+        clear();
+        nextSequence = 0;
+        built = true;
+        books.forEach(this::track);
+    }
+
+    synchronized void track(Book book) {
+        if (!built) {
+            return;
+        }
+        Doc previous = detach(book.getIsbn());
+        long sequence = previous == null ? nextSequence++ : previous.sequence;
+        attach(new Doc(book.getIsbn(), book.getTitle(), sequence, new String[] {
+                lower(book.getTitle()), lower(book.getAuthor()), lower(book.getGenre()),
+                lower(book.getIsbn()), lower(book.getBookId())}));
+        compactIfNeeded();
+    }
+
+    synchronized void remove(String isbn) {
+        if (!built) {
+            return;
+        }
+        detach(isbn);
+        compactIfNeeded();
+    }
+
+    synchronized List<Match> search(String rawQuery, String normalizedQuery, boolean useTrigrams, int depth) {
+        if (!built) {
+            rebuild();
+        }
+        GramSet queryGrams = new GramSet();
+        queryGrams.loadNormalized(normalizedQuery, useTrigrams);
+        int[] shared = new int[terms.size()];
+        IntList touchedTerms = new IntList();
+        for (int i = 0; i < queryGrams.size(); i++) {
+            IntList termIds = postings.get(queryGrams.code(i));
+            if (termIds == null) {
+                continue;
+            }
+            for (int j = 0; j < termIds.size; j++) {
+                int termId = termIds.values[j];
+                if (shared[termId]++ == 0) {
+                    touchedTerms.add(termId);
+                }
+            }
+        }
+
+        double[] scores = new double[docs.size()];
+        BitSet mayContainQuery = new BitSet(docs.size());
+        IntList touchedDocs = new IntList();
+        for (int i = 0; i < touchedTerms.size; i++) {
+            int termId = touchedTerms.values[i];
+            Term term = terms.get(termId);
+            int intersection = shared[termId];
+            int union = queryGrams.size() + term.bigrams + (useTrigrams ? term.trigrams : 0) - intersection;
+            double score = Math.min(FuzzyText.MAX_SIMILARITY, (double) intersection / union);
+            if (term.token) {
+                score *= FuzzyText.lengthPenalty(normalizedQuery.length(), term.length);
+            }
+            boolean containsAllGrams = !term.token && intersection == queryGrams.size();
+            for (int j = 0; j < term.docs.size; j++) {
+                int docId = term.docs.values[j];
+                if (!docs.get(docId).live) {
+                    continue;
+                }
+                if (scores[docId] == 0.0) {
+                    touchedDocs.add(docId);
+                }
+                if (score > scores[docId]) {
+                    scores[docId] = score;
+                }
+                if (containsAllGrams) {
+                    mayContainQuery.set(docId);
+                }
+            }
+        }
+
+        String lowerQuery = rawQuery.toLowerCase();
+        TopK<Match> top = new TopK<>(depth, Match.ORDER);
+        for (int i = 0; i < touchedDocs.size; i++) {
+            int docId = touchedDocs.values[i];
+            Doc doc = docs.get(docId);
+            double score = mayContainQuery.get(docId) && doc.contains(lowerQuery) ? 1.0 : scores[docId];
+            if (top.isFull() && score < top.worst().score) {
+                continue;
+            }
+            top.offer(new Match(doc.isbn, doc.title, doc.sequence, score));
+        }
+        return top.toSortedList();
+    }
+
+    private Doc detach(String isbn) {
+        Integer docId = docIds.remove(isbn);
+        if (docId == null) {
+            return null;
+        }
+        Doc doc = docs.get(docId);
+        doc.live = false;
+        liveDocs--;
+        return doc;
+    }
+
+    private void attach(Doc doc) {
+        int docId = docs.size();
+        docs.add(doc);
+        docIds.put(doc.isbn, docId);
+        liveDocs++;
+        for (String value : doc.fields) {
+            if (value == null) {
+                continue;
+            }
+            addPosting(fieldTerms, FuzzyText.normalize(value), false, docId);
+            for (String token : FuzzyText.tokenize(value)) {
+                addPosting(tokenTerms, FuzzyText.normalize(token), true, docId);
+            }
+        }
+    }
+
+    private void addPosting(Map<String, Integer> vocabulary, String text, boolean token, int docId) {
+        if (text.length() < 2) {
+            return;
+        }
+        Integer termId = vocabulary.get(text);
+        if (termId == null) {
+            termId = terms.size();
+            vocabulary.put(text, termId);
+            terms.add(newTerm(text, token, termId));
+        }
+        IntList termDocs = terms.get(termId).docs;
+        if (termDocs.size == 0 || termDocs.values[termDocs.size - 1] != docId) {
+            termDocs.add(docId);
+        }
+    }
+
+    private Term newTerm(String text, boolean token, int termId) {
+        termGrams.loadNormalized(text, true);
+        for (int i = 0; i < termGrams.size(); i++) {
+            postings.getOrCreate(termGrams.code(i)).add(termId);
+        }
+        int bigrams = termGrams.bigramCount();
+        return new Term(token, text.length(), bigrams, termGrams.size() - bigrams);
+    }
+
+    private void compactIfNeeded() {
+        int garbage = docs.size() - liveDocs;
+        if (garbage < MIN_COMPACTION_GARBAGE || garbage < liveDocs) {
+            return;
+        }
+        List<Doc> live = new ArrayList<>(liveDocs);
+        for (Doc doc : docs) {
+            if (doc.live) {
+                live.add(doc);
+            }
+        }
+        clear();
+        live.forEach(this::attach);
+    }
+
+    private void clear() {
+        docIds.clear();
+        docs.clear();
+        fieldTerms.clear();
+        tokenTerms.clear();
+        terms.clear();
+        postings.clear();
+        liveDocs = 0;
+    }
+
+    private static String lower(String value) {
+        return value == null ? null : value.toLowerCase();
+    }
+
+    static final class Match {
+        private static final Comparator<Match> ORDER = Comparator.comparingDouble(Match::getScore).reversed()
+                .thenComparing(Match::getTitle, String.CASE_INSENSITIVE_ORDER)
+                .thenComparingLong(Match::getSequence);
+        private final String isbn;
+        private final String title;
+        private final long sequence;
+        private final double score;
+
+        private Match(String isbn, String title, long sequence, double score) {
+            this.isbn = isbn;
+            this.title = title;
+            this.sequence = sequence;
+            this.score = score;
+        }
+
+        String getIsbn() {
+            return isbn;
+        }
+
+        String getTitle() {
+            return title;
+        }
+
+        long getSequence() {
+            return sequence;
+        }
+
+        double getScore() {
+            return score;
+        }
+    }
+
+    private static final class Doc {
+        private final String isbn;
+        private final String title;
+        private final long sequence;
+        private final String[] fields;
+        private boolean live = true;
+
+        private Doc(String isbn, String title, long sequence, String[] fields) {
+            this.isbn = isbn;
+            this.title = title;
+            this.sequence = sequence;
+            this.fields = fields;
+        }
+
+        private boolean contains(String lowerQuery) {
+            for (String field : fields) {
+                if (field != null && field.contains(lowerQuery)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Term {
+        private final boolean token;
+        private final int length;
+        private final int bigrams;
+        private final int trigrams;
+        private final IntList docs = new IntList();
+
+        private Term(boolean token, int length, int bigrams, int trigrams) {
+            this.token = token;
+            this.length = length;
+            this.bigrams = bigrams;
+            this.trigrams = trigrams;
+        }
+    }
+
+    private static final class PostingMap {
+        private long[] keys = new long[1024];
+        private IntList[] values = new IntList[1024];
+        private int size;
+
+        private IntList get(long code) {
+            int slot = slot(keys, values, code);
+            return values[slot];
+        }
+
+        private IntList getOrCreate(long code) {
+            int slot = slot(keys, values, code);
+            if (values[slot] == null) {
+                if ((size + 1) * 2 > keys.length) {
+                    grow();
+                    slot = slot(keys, values, code);
+                }
+                keys[slot] = code;
+                values[slot] = new IntList();
+                size++;
+            }
+            return values[slot];
+        }
+
+        private void clear() {
+            keys = new long[1024];
+            values = new IntList[1024];
+            size = 0;
+        }
+
+        private void grow() {
+            long[] newKeys = new long[keys.length * 2];
+            IntList[] newValues = new IntList[keys.length * 2];
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != null) {
+                    int slot = slot(newKeys, newValues, keys[i]);
+                    newKeys[slot] = keys[i];
+                    newValues[slot] = values[i];
+                }
+            }
+            keys = newKeys;
+            values = newValues;
+        }
+
+        private static int slot(long[] keys, IntList[] values, long code) {
+            int mask = keys.length - 1;
+            long mixed = code * 0x9E3779B97F4A7C15L;
+            int slot = (int) (mixed >>> 32) & mask;
+            while (values[slot] != null && keys[slot] != code) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
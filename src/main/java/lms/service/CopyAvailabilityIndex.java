@@ -0,0 +1,141 @@
+package lms.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import lms.model.BookCopy;
+import lms.model.CopyStatus;
+import lms.storage.Repository;
+
+class CopyAvailabilityIndex {
+    private static final Comparator<Entry> COPY_ORDER = Comparator.comparingLong(entry -> entry.sequence);
+    private final Repository<BookCopy, String> copies;
+    private final Map<String, Map<CopyStatus, TreeSet<Entry>>> byIsbn = new HashMap<>();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final ThreadLocal<Map<String, Entry>> undoLog = new ThreadLocal<>();
+    private long nextSequence;
+
+    CopyAvailabilityIndex(Repository<BookCopy, String> copies) {
+        this.copies = copies;
+    }
+
+    synchronized void rebuild() {
+        byIsbn.clear();
+        entries.clear();
+        nextSequence = 0;
+        copies.forEach(this::track);
+    }
+
+    synchronized String firstCopyId(String isbn, CopyStatus status) {
+        TreeSet<Entry> group = group(isbn, status);
+        return group == null || group.isEmpty() ? null : group.first().copyId;
+    }
+
+    synchronized int count(String isbn, CopyStatus status) {
+        TreeSet<Entry> group = group(isbn, status);
+        return group == null ? 0 : group.size();
+    }
+
+    synchronized List<String> copyIds(String isbn) {
+        Map<CopyStatus, TreeSet<Entry>> statuses = byIsbn.get(isbn);
+        if (statuses == null) {
+            return new ArrayList<>();
+        }
+        TreeSet<Entry> all = new TreeSet<>(COPY_ORDER);
+        for (TreeSet<Entry> group : statuses.values()) {
+            all.addAll(group);
+        }
+        List<String> ids = new ArrayList<>(all.size());
+        for (Entry entry : all) {
+            ids.add(entry.copyId);
+        }
+        return ids;
+    }
+
+    synchronized void track(BookCopy copy) {
+        Entry previous = detach(copy.getCopyId());
+        long sequence = previous == null ? nextSequence++ : previous.sequence;
+        attach(new Entry(copy.getCopyId(), copy.getIsbn(), copy.getStatus(), sequence));
+    }
+
+    synchronized void remove(String copyId) {
+        detach(copyId);
+    }
+
+    void beginUndoLog() {
+        undoLog.set(new HashMap<>());
+    }
+
+    synchronized void rollbackUndoLog() {
+        Map<String, Entry> previous = undoLog.get();
+        undoLog.remove();
+        if (previous == null) {
+            return;
+        }
+        for (Map.Entry<String, Entry> change : previous.entrySet()) {
+            removeEntry(change.getKey());
+            if (change.getValue() != null) {
+                attach(change.getValue());
+            }
+        }
+    }
+
+    void clearUndoLog() {
+        undoLog.remove();
+    }
+
+    private TreeSet<Entry> group(String isbn, CopyStatus status) {
+        Map<CopyStatus, TreeSet<Entry>> statuses = byIsbn.get(isbn);
+        return statuses == null ? null : statuses.get(status);
+    }
+
+    private Entry detach(String copyId) {
+        Map<String, Entry> log = undoLog.get();
+        if (log != null && !log.containsKey(copyId)) {
+            log.put(copyId, entries.get(copyId));
+        }
+        return removeEntry(copyId);
+    }
+
+    private Entry removeEntry(String copyId) {
+        Entry entry = entries.remove(copyId);
+        if (entry == null) {
+            return null;
+        }
+        Map<CopyStatus, TreeSet<Entry>> statuses = byIsbn.get(entry.isbn);
+        TreeSet<Entry> group = statuses.get(entry.status);
+        group.remove(entry);
+        if (group.isEmpty()) {
+            statuses.remove(entry.status);
+        }
+        if (statuses.isEmpty()) {
+            byIsbn.remove(entry.isbn);
+        }
+        return entry;
+    }
+
+    private void attach(Entry entry) {
+        entries.put(entry.copyId, entry);
+        byIsbn.computeIfAbsent(entry.isbn, isbn -> new EnumMap<>(CopyStatus.class))
+                .computeIfAbsent(entry.status, status -> new TreeSet<>(COPY_ORDER))
+                .add(entry);
+    }
+
+    private static final class Entry {
+        private final String copyId;
+        private final String isbn;
+        private final CopyStatus status;
+        private final long sequence;
+
+        private Entry(String copyId, String isbn, CopyStatus status, long sequence) {
+            this.copyId = copyId;
+            this.isbn = isbn;
+            this.status = status;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package lms.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class FuzzyText {
+    static final double MAX_SIMILARITY = Math.nextDown(1.0);
+
+    private FuzzyText() {
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String lower = value.toLowerCase();
+        StringBuilder builder = new StringBuilder(lower.length());
+        for (int i = 0; i < lower.length(); i++) {
+            char ch = lower.charAt(i);
+            if (Character.isLetterOrDigit(ch)) {
+                builder.append(ch);
+            }
+        }
+        return builder.toString();
+    }
+
+    static List<String> tokenize(String value) {
+        String[] rawTokens = value.toLowerCase().split("[^a-z0-9]+");
+        List<String> tokens = new ArrayList<>();
+        for (String token : rawTokens) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    static double lengthPenalty(int queryLength, int tokenLength) {
+        if (queryLength <= 0 || tokenLength <= 0) {
+            return 0.0;
+        }
+        int min = Math.min(queryLength, tokenLength);
+        int max = Math.max(queryLength, tokenLength);
+        double ratio = min / (double) max;
+        return ratio * ratio;
+    }
+}
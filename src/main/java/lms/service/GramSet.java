@@ -0,0 +1,119 @@
+package lms.service;
+
+import java.util.Arrays;
+
+final class GramSet {
+    private long[] codes = new long[32];
+    private int size;
+
+    void loadNormalized(String lower, boolean trigrams) {
+        size = 0;
+        char first = 0;
+        char second = 0;
+        int seen = 0;
+        for (int i = 0; i < lower.length(); i++) {
+            char ch = lower.charAt(i);
+            if (!Character.isLetterOrDigit(ch)) {
+                continue;
+            }
+            if (seen >= 1) {
+                append(bigram(second, ch));
+            }
+            if (trigrams && seen >= 2) {
+                append(trigram(first, second, ch));
+            }
+            first = second;
+            second = ch;
+            seen++;
+        }
+        sortDistinct();
+    }
+
+    void loadRange(String text, int start, int end, boolean trigrams) {
+        size = 0;
+        for (int i = start + 1; i < end; i++) {
+            append(bigram(text.charAt(i - 1), text.charAt(i)));
+            if (trigrams && i - start >= 2) {
+                append(trigram(text.charAt(i - 2), text.charAt(i - 1), text.charAt(i)));
+            }
+        }
+        sortDistinct();
+    }
+
+    int size() {
+        return size;
+    }
+
+    long code(int index) {
+        return codes[index];
+    }
+
+    int bigramCount() {
+        int count = 0;
+        while (count < size && isBigram(codes[count])) {
+            count++;
+        }
+        return count;
+    }
+
+    int intersectionSize(GramSet other) {
+        int i = 0;
+        int j = 0;
+        int shared = 0;
+        while (i < size && j < other.size) {
+            long a = codes[i];
+            long b = other.codes[j];
+            if (a == b) {
+                shared++;
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return shared;
+    }
+
+    double jaccard(GramSet other) {
+        if (size == 0 || other.size == 0) {
+            return 0.0;
+        }
+        int intersection = intersectionSize(other);
+        return (double) intersection / (size + other.size - intersection);
+    }
+
+    static boolean isBigram(long code) {
+        return code < (1L << 32);
+    }
+
+    private static long bigram(char first, char second) {
+        return ((long) first << 16) | second;
+    }
+
+    private static long trigram(char first, char second, char third) {
+        return ((long) first << 32) | ((long) second << 16) | third;
+    }
+
+    private void append(long code) {
+        if (size == codes.length) {
+            codes = Arrays.copyOf(codes, size * 2);
+        }
+        codes[size++] = code;
+    }
+
+    private void sortDistinct() {
+        if (size < 2) {
+            return;
+        }
+        Arrays.sort(codes, 0, size);
+        int distinct = 1;
+        for (int i = 1; i < size; i++) {
+            if (codes[i] != codes[distinct - 1]) {
+                codes[distinct++] = codes[i];
+            }
+        }
+        size = distinct;
+    }
+}
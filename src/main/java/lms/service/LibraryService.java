@@ -2,15 +2,20 @@ package lms.service;
 
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 import lms.exception.NotFoundException;
 import lms.exception.RuleViolationException;
@@ -28,6 +33,12 @@ import lms.policy.LoanPolicy;
 import lms.policy.LoanPolicyResolver;
 import lms.storage.LibraryStorage;
 import lms.storage.Repository;
+import lms.storage.query.BookFields;
+import lms.storage.query.LoanFields;
+import lms.storage.query.MemberFields;
+import lms.storage.query.Page;
+import lms.storage.query.Query;
+import lms.storage.query.ReservationFields;
 import lms.util.DateProvider;
 import lms.util.IdGenerator;
 import lms.util.Validators;
@@ -37,6 +48,11 @@ public class LibraryService {
     private static final double BASE_THRESHOLD = 0.18;
     private static final double SHORT_THRESHOLD = 0.12;
     private static final int FALLBACK_LIMIT = 10;
+    private static final int TEXT_SEARCH_CANDIDATES = 200;
+    private static final int DEFAULT_PARALLEL_SEARCH_THRESHOLD = 20_000;
+    private static final int LEAVES_PER_WORKER = 8;
+    private static final List<ReservationStatus> ACTIVE_RESERVATION_STATUSES =
+            List.of(ReservationStatus.QUEUED, ReservationStatus.READY);
     private final LibraryStorage storage;
     private final Repository<Book, String> books;
     private final Repository<BookCopy, String> copies;
@@ -46,6 +62,13 @@ public class LibraryService {
     private final LoanPolicyResolver loanPolicyResolver;
     private final FinePolicy finePolicy;
     private final DateProvider dateProvider;
+    private final ActiveLoanIndex activeLoanIndex;
+    private final ReservationQueueIndex reservationQueues;
+    private final CopyAvailabilityIndex copyAvailability;
+    private final BookSearchIndex bookSearch;
+    private final PrefixIndex<Book> bookCompletions;
+    private final PrefixIndex<Member> memberCompletions;
+    private volatile int parallelSearchThreshold = DEFAULT_PARALLEL_SEARCH_THRESHOLD;
 
     public LibraryService(LibraryStorage storage,
                           LoanPolicyResolver loanPolicyResolver,
@@ -60,44 +83,60 @@ public class LibraryService {
         this.loanPolicyResolver = loanPolicyResolver;
         this.finePolicy = finePolicy;
         this.dateProvider = dateProvider;
+        this.activeLoanIndex = new ActiveLoanIndex(loans);
+        activeLoanIndex.rebuild();
+        this.reservationQueues = new ReservationQueueIndex(reservations);
+        reservationQueues.rebuild();
+        this.copyAvailability = new CopyAvailabilityIndex(copies);
+        copyAvailability.rebuild();
+        this.bookSearch = new BookSearchIndex(books);
+        this.bookCompletions = new PrefixIndex<>(books,
+                book -> List.of(book.getTitle(), book.getAuthor()));
+        this.memberCompletions = new PrefixIndex<>(members,
+                member -> Arrays.asList(member.getName(), member.getEmail()));
+    }
+
+    public void setParallelSearchThreshold(int parallelSearchThreshold) {
+        this.parallelSearchThreshold = parallelSearchThreshold;
     }
 
     public void addBook(Book book) {
-        if (book == null) {
-            throw new ValidationException("Book is required");
-        }
-        String isbn = Validators.validateIsbn(book.getIsbn());
-        if (books.existsById(isbn)) {
-            throw new RuleViolationException("Book already exists: " + isbn);
-        }
-        String bookId = book.getBookId();
-        if (bookId == null || bookId.trim().isEmpty()) {
-            bookId = IdGenerator.newId("BOOK");
-        } else {
-            bookId = bookId.trim();
-        }
-        book.setBookId(bookId);
-        book.setIsbn(isbn);
-        book.setTitle(Validators.requireNonBlank(book.getTitle(), "Title"));
-        book.setAuthor(Validators.requireNonBlank(book.getAuthor(), "Author"));
-        book.setGenre(Validators.requireNonBlank(book.getGenre(), "Genre"));
-        if (book.getYear() <= 0) {
-            throw new ValidationException("Year must be positive");
-        }
+        prepareNewBook(book);
         books.save(book);
+        bookSearch.track(book);
+        bookCompletions.track(book);
     }
 
     public void addBook(Book book, int copiesCount) {
-        if (copiesCount < 0) {
-            throw new ValidationException("Copies count must be non-negative");
+        addBooks(Collections.singletonMap(book, copiesCount));
+    }
+
+    public void addBooks(Map<Book, Integer> copiesByBook) {
+        for (Integer copiesCount : copiesByBook.values()) {
+            if (copiesCount == null || copiesCount < 0) {
+                throw new ValidationException("Copies count must be non-negative");
+            }
         }
-        storage.runInTransaction(() -> {
-            addBook(book);
-            for (int i = 0; i < copiesCount; i++) {
-                addCopy(book.getIsbn());
+        runIndexedTransaction(() -> {
+            Set<String> isbns = new HashSet<>();
+            List<BookCopy> newCopies = new ArrayList<>();
+            for (Map.Entry<Book, Integer> entry : copiesByBook.entrySet()) {
+                Book book = entry.getKey();
+                prepareNewBook(book);
+                if (!isbns.add(book.getIsbn())) {
+                    throw new RuleViolationException("Book already exists: " + book.getIsbn());
+                }
+                for (int i = 0; i < entry.getValue(); i++) {
+                    newCopies.add(new BookCopy(IdGenerator.newId("COPY"), book.getIsbn(), CopyStatus.AVAILABLE));
+                }
             }
+            books.saveAll(copiesByBook.keySet());
+            copies.saveAll(newCopies);
+            newCopies.forEach(copyAvailability::track);
             return null;
         });
+        copiesByBook.keySet().forEach(bookSearch::track);
+        copiesByBook.keySet().forEach(bookCompletions::track);
     }
 
     public BookCopy addCopy(String isbn) {
@@ -105,7 +144,7 @@ public class LibraryService {
         Book book = books.findById(cleaned)
                 .orElseThrow(() -> new NotFoundException("Book not found: " + isbn));
         BookCopy copy = new BookCopy(IdGenerator.newId("COPY"), book.getIsbn(), CopyStatus.AVAILABLE);
-        copies.save(copy);
+        saveCopy(copy);
         return copy;
     }
 
@@ -113,40 +152,40 @@ public class LibraryService {
         BookCopy copy = copies.findById(copyId)
                 .orElseThrow(() -> new NotFoundException("Copy not found: " + copyId));
         copy.setStatus(CopyStatus.LOST);
-        copies.save(copy);
+        saveCopy(copy);
     }
 
     public void removeBook(String isbn) {
-        storage.runInTransaction(() -> {
+        String removed = runIndexedTransaction(() -> {
             String cleaned = resolveIsbn(isbn);
-            List<BookCopy> relatedCopies = copies.findAll().stream()
-                    .filter(copy -> cleaned.equals(copy.getIsbn()))
-                    .collect(Collectors.toList());
-            Set<String> copyIds = relatedCopies.stream()
-                    .map(BookCopy::getCopyId)
-                    .collect(Collectors.toSet());
-            boolean hasLoanHistory = loans.findAll().stream()
-                    .anyMatch(loan -> copyIds.contains(loan.getCopyId()));
+            Set<String> copyIds = new HashSet<>(copyAvailability.copyIds(cleaned));
+            boolean hasLoanHistory = !copyIds.isEmpty()
+                    && loans.exists(Query.<Loan>all().in(LoanFields.COPY_ID, copyIds));
             if (hasLoanHistory) {
                 throw new RuleViolationException("Cannot remove book with loan history");
             }
-            boolean hasReservationHistory = reservations.findAll().stream()
-                    .anyMatch(res -> cleaned.equals(res.getIsbn()));
+            boolean hasReservationHistory = reservations.exists(
+                    Query.<Reservation>all().eq(ReservationFields.ISBN, cleaned));
             if (hasReservationHistory) {
                 throw new RuleViolationException("Cannot remove book with reservations");
             }
-            for (BookCopy copy : relatedCopies) {
-                copies.deleteById(copy.getCopyId());
-            }
+            copies.deleteAllById(copyIds);
+            copyIds.forEach(copyAvailability::remove);
             books.deleteById(cleaned);
-            return null;
+            return cleaned;
         });
+        bookSearch.remove(removed);
+        bookCompletions.remove(removed);
     }
 
     public List<Book> listBooks() {
         return books.findAll();
     }
 
+    public Page<Book> listBooks(String afterIsbn, int pageSize) {
+        return books.findPage(BookFields.ISBN, afterIsbn, pageSize);
+    }
+
     public Book updateBook(String isbnOrBookId, String bookId, String title, String author, int year, String genre) {
         String cleanedIsbn = resolveIsbn(isbnOrBookId);
         Book book = books.findById(cleanedIsbn)
@@ -163,52 +202,83 @@ public class LibraryService {
             book.setBookId(trimmed.isEmpty() ? null : trimmed);
         }
         books.save(book);
+        bookSearch.track(book);
+        bookCompletions.track(book);
         return book;
     }
 
     public List<Book> searchBooks(String query) {
+        return searchBooks(query, Integer.MAX_VALUE, 0);
+    }
+
+    public List<Book> searchBooks(String query, int limit, int offset) {
         String q = Validators.requireNonBlank(query, "Query");
-        List<Book> allBooks = books.findAll();
-        return fuzzySearch(allBooks, q);
+        int depth = searchDepth(limit, offset);
+        int candidateLimit = Math.max(TEXT_SEARCH_CANDIDATES, depth);
+        Optional<List<Book>> candidates = books.findByText(q, candidateLimit);
+        if (candidates.isPresent() && candidates.get().size() < candidateLimit) {
+            List<Book> closeMatches = fuzzySearch(candidates.get(), q, false, depth);
+            if (fillsWithExactMatches(closeMatches, depth, book -> matches(book, q))) {
+                return skip(closeMatches, offset);
+            }
+        }
+        return skip(indexedFuzzySearch(q, depth), offset);
     }
 
     public List<Book> searchBooks(String title, String author) {
-        String titleQuery = title == null ? "" : title.trim().toLowerCase();
-        String authorQuery = author == null ? "" : author.trim().toLowerCase();
-        return books.findAll().stream()
-                .filter(book -> book.getTitle().toLowerCase().contains(titleQuery))
-                .filter(book -> book.getAuthor().toLowerCase().contains(authorQuery))
-                .collect(Collectors.toList());
+        Query<Book> query = Query.all();
+        if (title != null && !title.isBlank()) {
+            query.containsIgnoreCase(BookFields.TITLE, title.trim());
+        }
+        if (author != null && !author.isBlank()) {
+            query.containsIgnoreCase(BookFields.AUTHOR, author.trim());
+        }
+        return books.findBy(query);
+    }
+
+    public List<String> completeBooks(String prefix, int limit) {
+        return complete(bookCompletions, prefix, limit);
     }
 
     public List<BookCopy> getCopiesByIsbn(String isbn) {
         String cleaned = resolveIsbn(isbn);
-        return copies.findAll().stream()
-                .filter(copy -> cleaned.equals(copy.getIsbn()))
-                .collect(Collectors.toList());
+        List<String> copyIds = copyAvailability.copyIds(cleaned);
+        Map<String, BookCopy> found = copies.findAllById(copyIds);
+        List<BookCopy> result = new ArrayList<>(found.size());
+        for (String copyId : copyIds) {
+            BookCopy copy = found.get(copyId);
+            if (copy != null) {
+                result.add(copy);
+            }
+        }
+        return result;
+    }
+
+    public int availableCount(String isbn) {
+        return copyAvailability.count(isbn, CopyStatus.AVAILABLE);
     }
 
     public Member addMember(Member member) {
-        if (member == null) {
-            throw new ValidationException("Member is required");
-        }
-        String id = member.getMemberId();
-        if (id == null || id.trim().isEmpty()) {
-            id = IdGenerator.newId("MEM");
-            member.setMemberId(id);
-        }
-        member.setName(Validators.requireNonBlank(member.getName(), "Name"));
-        member.setEmail(Validators.validateEmail(member.getEmail()));
-        if (member.getType() == null) {
-            throw new ValidationException("Member type is required");
-        }
-        if (members.existsById(id)) {
-            throw new RuleViolationException("Member already exists: " + id);
-        }
+        prepareNewMember(member);
         members.save(member);
+        memberCompletions.track(member);
         return member;
     }
 
+    public void addMembers(List<Member> newMembers) {
+        storage.runInTransaction(() -> {
+            Set<String> ids = new HashSet<>();
+            for (Member member : newMembers) {
+                prepareNewMember(member);
+                if (!ids.add(member.getMemberId())) {
+                    throw new RuleViolationException("Member already exists: " + member.getMemberId());
+                }
+            }
+            members.saveAll(newMembers);
+        });
+        newMembers.forEach(memberCompletions::track);
+    }
+
     public Member updateMember(String memberId, String name, String email, MemberType type) {
         String cleaned = Validators.requireNonBlank(memberId, "Member ID");
         Member member = members.findById(cleaned)
@@ -220,6 +290,7 @@ public class LibraryService {
         }
         member.setType(type);
         members.save(member);
+        memberCompletions.track(member);
         return member;
     }
 
@@ -227,22 +298,30 @@ public class LibraryService {
         return members.findAll();
     }
 
+    public Page<Member> listMembers(String afterMemberId, int pageSize) {
+        return members.findPage(MemberFields.MEMBER_ID, afterMemberId, pageSize);
+    }
+
+    public List<String> completeMembers(String prefix, int limit) {
+        return complete(memberCompletions, prefix, limit);
+    }
+
     public void removeMember(String memberId) {
         String cleaned = Validators.requireNonBlank(memberId, "Member ID");
         if (!members.existsById(cleaned)) {
             throw new NotFoundException("Member not found: " + cleaned);
         }
-        boolean hasActiveLoan = loans.findAll().stream()
-                .anyMatch(loan -> cleaned.equals(loan.getMemberId()) && !loan.isReturned());
-        if (hasActiveLoan) {
+        if (activeLoanIndex.activeLoans(cleaned) > 0) {
             throw new RuleViolationException("Cannot remove member with active loans");
         }
-        boolean hasActiveReservation = reservations.findAll().stream()
-                .anyMatch(res -> cleaned.equals(res.getMemberId()) && res.isActive());
+        boolean hasActiveReservation = reservations.exists(Query.<Reservation>all()
+                .eq(ReservationFields.MEMBER_ID, cleaned)
+                .in(ReservationFields.STATUS, ACTIVE_RESERVATION_STATUSES));
         if (hasActiveReservation) {
             throw new RuleViolationException("Cannot remove member with active reservations");
         }
         members.deleteById(cleaned);
+        memberCompletions.remove(cleaned);
     }
 
     public Loan loanByIsbn(String isbn, String memberId) {
@@ -250,7 +329,7 @@ public class LibraryService {
     }
 
     public Loan loanByIsbn(String isbn, String memberId, LocalDate loanDate, LocalDate dueDate) {
-        return storage.runInTransaction(() -> {
+        return runIndexedTransaction(() -> {
             String cleanedIsbn = resolveIsbn(isbn);
             String cleanedMemberId = Validators.requireNonBlank(memberId, "Member ID");
             Member member = members.findById(cleanedMemberId)
@@ -259,10 +338,7 @@ public class LibraryService {
                     .orElseThrow(() -> new NotFoundException("Book not found: " + cleanedIsbn));
 
             LoanPolicy policy = loanPolicyResolver.forMember(member);
-            long activeLoans = loans.findAll().stream()
-                    .filter(loan -> cleanedMemberId.equals(loan.getMemberId()) && !loan.isReturned())
-                    .count();
-            if (activeLoans >= policy.maxLoans(member)) {
+            if (activeLoanIndex.activeLoans(cleanedMemberId) >= policy.maxLoans(member)) {
                 throw new RuleViolationException("Member has reached loan limit");
             }
 
@@ -277,11 +353,8 @@ public class LibraryService {
                 resolvedDueDate = resolvedLoanDate.plusDays(policy.loanDays(member));
             }
 
-            Optional<Reservation> readyReservation = reservations.findAll().stream()
-                    .filter(res -> cleanedIsbn.equals(res.getIsbn()))
-                    .filter(res -> res.getStatus() == ReservationStatus.READY)
-                    .filter(res -> cleanedMemberId.equals(res.getMemberId()))
-                    .findFirst();
+            Optional<Reservation> readyReservation = readyReservationFor(cleanedIsbn)
+                    .filter(reservation -> reservation.getMemberId().equals(cleanedMemberId));
             if (readyReservation.isPresent()) {
                 BookCopy reservedCopy = findFirstCopy(cleanedIsbn, CopyStatus.RESERVED)
                         .orElseThrow(() -> new RuleViolationException("Reserved copy not found"));
@@ -296,23 +369,24 @@ public class LibraryService {
     }
 
     public ReturnResult returnByCopyId(String copyId) {
-        return storage.runInTransaction(() -> {
+        return runIndexedTransaction(() -> {
             String cleaned = Validators.requireNonBlank(copyId, "Copy ID");
             BookCopy copy = copies.findById(cleaned)
                     .orElseThrow(() -> new NotFoundException("Copy not found: " + cleaned));
-            Loan loan = loans.findAll().stream()
-                    .filter(existing -> cleaned.equals(existing.getCopyId()) && !existing.isReturned())
-                    .findFirst()
+            Loan loan = loans.findFirst(Query.<Loan>all()
+                            .eq(LoanFields.COPY_ID, cleaned)
+                            .isNull(LoanFields.RETURN_DATE))
                     .orElseThrow(() -> new RuleViolationException("Active loan not found for copy"));
             loan.setReturnDate(dateProvider.today());
             loans.save(loan);
+            activeLoanIndex.loanClosed(loan.getMemberId());
 
             copy.setStatus(CopyStatus.AVAILABLE);
             Reservation nextReservation = promoteNextReservation(copy.getIsbn());
             if (nextReservation != null) {
                 copy.setStatus(CopyStatus.RESERVED);
             }
-            copies.save(copy);
+            saveCopy(copy);
             return new ReturnResult(loan, nextReservation, nextReservation == null ? null : copy);
         });
     }
@@ -323,10 +397,10 @@ public class LibraryService {
         if (!members.existsById(cleanedMemberId)) {
             throw new NotFoundException("Member not found: " + cleanedMemberId);
         }
-        boolean alreadyReserved = reservations.findAll().stream()
-                .anyMatch(res -> cleanedIsbn.equals(res.getIsbn())
-                        && cleanedMemberId.equals(res.getMemberId())
-                        && res.isActive());
+        boolean alreadyReserved = reservations.exists(Query.<Reservation>all()
+                .eq(ReservationFields.ISBN, cleanedIsbn)
+                .eq(ReservationFields.MEMBER_ID, cleanedMemberId)
+                .in(ReservationFields.STATUS, ACTIVE_RESERVATION_STATUSES));
         if (alreadyReserved) {
             throw new RuleViolationException("Member already has a reservation for this book");
         }
@@ -342,12 +416,13 @@ public class LibraryService {
                 ReservationStatus.QUEUED
         );
         reservations.save(reservation);
+        reservationQueues.track(reservation);
         return reservation;
     }
 
     public Reservation updateReservation(String reservationId, String memberId, ReservationStatus status) {
         String cleaned = Validators.requireNonBlank(reservationId, "Reservation ID");
-        return storage.runInTransaction(() -> {
+        return runIndexedTransaction(() -> {
             Reservation reservation = reservations.findById(cleaned)
                     .orElseThrow(() -> new NotFoundException("Reservation not found: " + cleaned));
             String updatedMemberId = memberId == null ? reservation.getMemberId()
@@ -362,11 +437,8 @@ public class LibraryService {
             }
             Optional<BookCopy> availableCopy = Optional.empty();
             if (newStatus == ReservationStatus.READY && oldStatus != ReservationStatus.READY) {
-                boolean otherReady = reservations.findAll().stream()
-                        .filter(res -> reservation.getIsbn().equals(res.getIsbn()))
-                        .filter(res -> res.getStatus() == ReservationStatus.READY)
-                        .anyMatch(res -> !res.getReservationId().equals(reservation.getReservationId()));
-                if (otherReady) {
+                String readyId = reservationQueues.readyReservationId(reservation.getIsbn());
+                if (readyId != null && !readyId.equals(reservation.getReservationId())) {
                     throw new RuleViolationException("Another reservation is already READY for this book");
                 }
                 availableCopy = findFirstCopy(reservation.getIsbn(), CopyStatus.AVAILABLE);
@@ -378,11 +450,12 @@ public class LibraryService {
             reservation.setMemberId(updatedMemberId);
             reservation.setStatus(newStatus);
             reservations.save(reservation);
+            reservationQueues.track(reservation);
 
             if (newStatus == ReservationStatus.READY && oldStatus != ReservationStatus.READY) {
                 BookCopy copy = availableCopy.get();
                 copy.setStatus(CopyStatus.RESERVED);
-                copies.save(copy);
+                saveCopy(copy);
             }
 
             if (oldStatus == ReservationStatus.READY && newStatus != ReservationStatus.READY) {
@@ -392,7 +465,7 @@ public class LibraryService {
                     if (reservedCopy.isPresent()) {
                         BookCopy copy = reservedCopy.get();
                         copy.setStatus(CopyStatus.AVAILABLE);
-                        copies.save(copy);
+                        saveCopy(copy);
                     }
                 } else if (reservedCopy.isEmpty()) {
                     Optional<BookCopy> fallback = findFirstCopy(reservation.getIsbn(), CopyStatus.AVAILABLE);
@@ -401,7 +474,7 @@ public class LibraryService {
                     }
                     BookCopy copy = fallback.get();
                     copy.setStatus(CopyStatus.RESERVED);
-                    copies.save(copy);
+                    saveCopy(copy);
                 }
             }
             return reservation;
@@ -409,23 +482,25 @@ public class LibraryService {
     }
 
     public List<Loan> getActiveLoans() {
-        return loans.findAll().stream()
-                .filter(loan -> !loan.isReturned())
-                .collect(Collectors.toList());
+        return loans.findBy(Query.<Loan>all().isNull(LoanFields.RETURN_DATE));
+    }
+
+    public Page<Loan> getActiveLoans(String afterLoanId, int pageSize) {
+        return loans.findPage(Query.<Loan>all().isNull(LoanFields.RETURN_DATE),
+                LoanFields.LOAN_ID, afterLoanId, pageSize);
     }
 
     public List<Loan> getOverdueLoans(LocalDate today) {
-        LocalDate date = today == null ? dateProvider.today() : today;
-        return loans.findAll().stream()
-                .filter(loan -> loan.isOverdue(date))
-                .collect(Collectors.toList());
+        return loans.findBy(overdueLoans(today));
+    }
+
+    public Page<Loan> getOverdueLoans(LocalDate today, String afterLoanId, int pageSize) {
+        return loans.findPage(overdueLoans(today), LoanFields.LOAN_ID, afterLoanId, pageSize);
     }
 
     public List<Loan> getLoansForMember(String memberId) {
         String cleanedMemberId = Validators.requireNonBlank(memberId, "Member ID");
-        return loans.findAll().stream()
-                .filter(loan -> cleanedMemberId.equals(loan.getMemberId()))
-                .collect(Collectors.toList());
+        return loans.findBy(Query.<Loan>all().eq(LoanFields.MEMBER_ID, cleanedMemberId));
     }
 
     public LocalDate suggestDueDate(String memberId, LocalDate loanDate) {
@@ -442,7 +517,7 @@ public class LibraryService {
         if (newLoanDate == null) {
             throw new ValidationException("Loan date is required");
         }
-        return storage.runInTransaction(() -> {
+        return runIndexedTransaction(() -> {
             Loan loan = loans.findById(cleaned)
                     .orElseThrow(() -> new NotFoundException("Loan not found: " + cleaned));
             LocalDate oldLoanDate = loan.getLoanDate();
@@ -462,7 +537,7 @@ public class LibraryService {
         if (newDueDate == null) {
             throw new ValidationException("Due date is required");
         }
-        return storage.runInTransaction(() -> {
+        return runIndexedTransaction(() -> {
             Loan loan = loans.findById(cleaned)
                     .orElseThrow(() -> new NotFoundException("Loan not found: " + cleaned));
             if (loan.getLoanDate() != null && newDueDate.isBefore(loan.getLoanDate())) {
@@ -476,9 +551,7 @@ public class LibraryService {
 
     public List<Reservation> getReservationsForIsbn(String isbn) {
         String cleanedIsbn = resolveIsbn(isbn);
-        return reservations.findAll().stream()
-                .filter(res -> cleanedIsbn.equals(res.getIsbn()))
-                .collect(Collectors.toList());
+        return reservations.findBy(Query.<Reservation>all().eq(ReservationFields.ISBN, cleanedIsbn));
     }
 
     public Book getBookByKey(String isbnOrBookId) {
@@ -491,42 +564,116 @@ public class LibraryService {
         return reservations.findAll();
     }
 
+    public Page<Reservation> listReservations(String afterReservationId, int pageSize) {
+        return reservations.findPage(ReservationFields.RESERVATION_ID, afterReservationId, pageSize);
+    }
+
     public List<Member> searchMembers(String query) {
+        return searchMembers(query, Integer.MAX_VALUE, 0);
+    }
+
+    public List<Member> searchMembers(String query, int limit, int offset) {
         String q = Validators.requireNonBlank(query, "Query");
-        List<Member> allMembers = members.findAll();
-        return fuzzySearchMembers(allMembers, q);
+        int depth = searchDepth(limit, offset);
+        int candidateLimit = Math.max(TEXT_SEARCH_CANDIDATES, depth);
+        Optional<List<Member>> candidates = members.findByText(q, candidateLimit);
+        if (candidates.isPresent() && candidates.get().size() < candidateLimit) {
+            List<Member> closeMatches = fuzzySearchMembers(candidates.get(), q, false, depth);
+            if (fillsWithExactMatches(closeMatches, depth, member -> matches(member, q))) {
+                return skip(closeMatches, offset);
+            }
+        }
+        return skip(fuzzySearchMembers(members.findAll(), q, true, depth), offset);
     }
 
     public void removeReservation(String reservationId) {
         String cleaned = Validators.requireNonBlank(reservationId, "Reservation ID");
-        storage.runInTransaction(() -> {
+        runIndexedTransaction(() -> {
             Reservation reservation = reservations.findById(cleaned)
                     .orElseThrow(() -> new NotFoundException("Reservation not found: " + cleaned));
             reservations.deleteById(cleaned);
+            reservationQueues.remove(cleaned);
             if (reservation.getStatus() == ReservationStatus.READY) {
                 Optional<BookCopy> reservedCopy = findFirstCopy(reservation.getIsbn(), CopyStatus.RESERVED);
                 Reservation next = promoteNextReservation(reservation.getIsbn());
                 if (next == null && reservedCopy.isPresent()) {
                     BookCopy copy = reservedCopy.get();
                     copy.setStatus(CopyStatus.AVAILABLE);
-                    copies.save(copy);
+                    saveCopy(copy);
                 }
             }
             return null;
         });
     }
 
+    public int getQueuePosition(String reservationId) {
+        String cleaned = Validators.requireNonBlank(reservationId, "Reservation ID");
+        int position = reservationQueues.queuePosition(cleaned);
+        if (position < 0) {
+            throw new NotFoundException("Active reservation not found: " + cleaned);
+        }
+        return position;
+    }
+
+    public boolean verifyActiveLoanIndex() {
+        return activeLoanIndex.matchesStorage();
+    }
+
     public long calculateFineCents(Loan loan, LocalDate today) {
         return finePolicy.fineCents(loan, today == null ? dateProvider.today() : today);
     }
 
+    private void prepareNewBook(Book book) {
+        if (book == null) {
+            throw new ValidationException("Book is required");
+        }
+        String isbn = Validators.validateIsbn(book.getIsbn());
+        if (books.existsById(isbn)) {
+            throw new RuleViolationException("Book already exists: " + isbn);
+        }
+        String bookId = book.getBookId();
+        if (bookId == null || bookId.trim().isEmpty()) {
+            bookId = IdGenerator.newId("BOOK");
+        } else {
+            bookId = bookId.trim();
+        }
+        book.setBookId(bookId);
+        book.setIsbn(isbn);
+        book.setTitle(Validators.requireNonBlank(book.getTitle(), "Title"));
+        book.setAuthor(Validators.requireNonBlank(book.getAuthor(), "Author"));
+        book.setGenre(Validators.requireNonBlank(book.getGenre(), "Genre"));
+        if (book.getYear() <= 0) {
+            throw new ValidationException("Year must be positive");
+        }
+    }
+
+    private void prepareNewMember(Member member) {
+        if (member == null) {
+            throw new ValidationException("Member is required");
+        }
+        String id = member.getMemberId();
+        if (id == null || id.trim().isEmpty()) {
+            id = IdGenerator.newId("MEM");
+            member.setMemberId(id);
+        }
+        member.setName(Validators.requireNonBlank(member.getName(), "Name"));
+        member.setEmail(Validators.validateEmail(member.getEmail()));
+        if (member.getType() == null) {
+            throw new ValidationException("Member type is required");
+        }
+        if (members.existsById(id)) {
+            throw new RuleViolationException("Member already exists: " + id);
+        }
+    }
+
     private Loan finalizeLoan(Book book, Member member, BookCopy copy, Reservation reservation,
                               LocalDate loanDate, LocalDate dueDate) {
         copy.setStatus(CopyStatus.LOANED);
-        copies.save(copy);
+        saveCopy(copy);
         Loan loan = new Loan(IdGenerator.newId("LOAN"), copy.getCopyId(), member.getMemberId(),
                 loanDate, dueDate);
         loans.save(loan);
+        activeLoanIndex.loanOpened(member.getMemberId());
 
         book.incrementTotalLoans();
         books.save(book);
@@ -534,42 +681,85 @@ public class LibraryService {
         if (reservation != null) {
             reservation.setStatus(ReservationStatus.FULFILLED);
             reservations.save(reservation);
+            reservationQueues.track(reservation);
         }
         return loan;
     }
 
     private Optional<BookCopy> findFirstCopy(String isbn, CopyStatus status) {
-        return copies.findAll().stream()
-                .filter(copy -> isbn.equals(copy.getIsbn()))
-                .filter(copy -> copy.getStatus() == status)
-                .findFirst();
+        String copyId = copyAvailability.firstCopyId(isbn, status);
+        return copyId == null ? Optional.empty() : copies.findById(copyId);
+    }
+
+    private void saveCopy(BookCopy copy) {
+        copies.save(copy);
+        copyAvailability.track(copy);
+    }
+
+    private <T> T runIndexedTransaction(Supplier<T> action) {
+        activeLoanIndex.beginUndoLog();
+        reservationQueues.beginUndoLog();
+        copyAvailability.beginUndoLog();
+        AtomicBoolean actionCompleted = new AtomicBoolean();
+        try {
+            T result = storage.runInTransaction(() -> {
+                T value = action.get();
+                actionCompleted.set(true);
+                return value;
+            });
+            activeLoanIndex.clearUndoLog();
+            reservationQueues.clearUndoLog();
+            copyAvailability.clearUndoLog();
+            return result;
+        } catch (RuntimeException | Error ex) {
+            if (actionCompleted.get()) {
+                rebuildTransactionalIndexes();
+            } else {
+                activeLoanIndex.rollbackUndoLog();
+                reservationQueues.rollbackUndoLog();
+                copyAvailability.rollbackUndoLog();
+            }
+            throw ex;
+        }
+    }
+
+    private void rebuildTransactionalIndexes() {
+        activeLoanIndex.clearUndoLog();
+        reservationQueues.clearUndoLog();
+        copyAvailability.clearUndoLog();
+        activeLoanIndex.rebuild();
+        reservationQueues.rebuild();
+        copyAvailability.rebuild();
+    }
+
+    private Query<Loan> overdueLoans(LocalDate today) {
+        LocalDate date = today == null ? dateProvider.today() : today;
+        return Query.<Loan>all()
+                .isNull(LoanFields.RETURN_DATE)
+                .lessThan(LoanFields.DUE_DATE, date);
+    }
+
+    private Optional<Reservation> readyReservationFor(String isbn) {
+        String readyId = reservationQueues.readyReservationId(isbn);
+        return readyId == null ? Optional.empty() : reservations.findById(readyId);
     }
 
     private Reservation promoteNextReservation(String isbn) {
-        boolean hasReady = reservations.findAll().stream()
-                .anyMatch(res -> isbn.equals(res.getIsbn()) && res.getStatus() == ReservationStatus.READY);
-        if (hasReady) {
+        if (reservationQueues.readyReservationId(isbn) != null) {
             return null;
         }
-        Queue<Reservation> queue = buildReservationQueue(isbn);
-        Reservation next = queue.poll();
-        if (next == null) {
+        String nextId = reservationQueues.nextQueuedId(isbn);
+        if (nextId == null) {
             return null;
         }
+        Reservation next = reservations.findById(nextId)
+                .orElseThrow(() -> new NotFoundException("Reservation not found: " + nextId));
         next.setStatus(ReservationStatus.READY);
         reservations.save(next);
+        reservationQueues.track(next);
         return next;
     }
 
-    private Queue<Reservation> buildReservationQueue(String isbn) {
-        List<Reservation> queued = reservations.findAll().stream()
-                .filter(res -> isbn.equals(res.getIsbn()))
-                .filter(res -> res.getStatus() == ReservationStatus.QUEUED)
-                .sorted(Comparator.comparing(Reservation::getCreatedAt))
-                .collect(Collectors.toList());
-        return new ArrayDeque<>(queued);
-    }
-
     private boolean matches(Book book, String query) {
         String q = query == null ? "" : query.toLowerCase();
         String bookId = book.getBookId();
@@ -590,10 +780,7 @@ public class LibraryService {
                 return normalized;
             }
         }
-        Optional<Book> byBookId = books.findAll().stream()
-                .filter(book -> book.getBookId() != null)
-                .filter(book -> book.getBookId().equalsIgnoreCase(trimmed))
-                .findFirst();
+        Optional<Book> byBookId = books.findFirst(Query.<Book>all().eqIgnoreCase(BookFields.BOOK_ID, trimmed));
         if (byBookId.isPresent()) {
             return byBookId.get().getIsbn();
         }
@@ -608,79 +795,137 @@ public class LibraryService {
                 || (member.getEmail() != null && member.getEmail().toLowerCase().contains(q));
     }
 
-    private List<Book> fuzzySearch(List<Book> allBooks, String query) {
-        String normalizedQuery = normalize(query);
+    private List<Book> fuzzySearch(List<Book> allBooks, String query, boolean allowFallback, int depth) {
+        String normalizedQuery = FuzzyText.normalize(query);
         if (normalizedQuery.length() < 2) {
             return allBooks.stream()
                     .filter(book -> matches(book, query))
                     .sorted(Comparator.comparing(Book::getTitle, String.CASE_INSENSITIVE_ORDER))
+                    .limit(depth)
                     .collect(Collectors.toList());
         }
         boolean useTrigrams = normalizedQuery.length() > SHORT_QUERY_MAX;
         double threshold = useTrigrams ? BASE_THRESHOLD : SHORT_THRESHOLD;
-        List<BookScore> scored = new ArrayList<>();
-        for (Book book : allBooks) {
-            double score = similarityScore(query, normalizedQuery, book, useTrigrams);
-            if (score > 0.0) {
-                scored.add(new BookScore(book, score));
-            }
-        }
-        scored.sort(Comparator.comparingDouble(BookScore::getScore).reversed()
-                .thenComparing(score -> score.getBook().getTitle(), String.CASE_INSENSITIVE_ORDER));
-        List<BookScore> closeMatches = scored.stream()
-                .filter(score -> score.getScore() >= threshold)
+        List<BookScore> ranked = rank(allBooks, new RankTask.Ranking<>(depth, BookScore.ORDER, BookScore::getScore,
+                () -> bookScorer(query, new NgramMatcher(normalizedQuery, useTrigrams))));
+        return closeMatchesOrFallback(ranked, BookScore::getScore, threshold, allowFallback).stream()
+                .map(BookScore::getBook)
                 .collect(Collectors.toList());
-        if (!closeMatches.isEmpty()) {
-            return closeMatches.stream()
-                    .map(BookScore::getBook)
-                    .collect(Collectors.toList());
-        }
-        if (scored.isEmpty()) {
-            return new ArrayList<>();
+    }
+
+    private List<Book> indexedFuzzySearch(String query, int depth) {
+        String normalizedQuery = FuzzyText.normalize(query);
+        if (normalizedQuery.length() < 2) {
+            return fuzzySearch(books.findAll(), query, true, depth);
         }
-        int limit = Math.min(FALLBACK_LIMIT, scored.size());
-        return scored.stream()
-                .limit(limit)
-                .map(BookScore::getBook)
+        boolean useTrigrams = normalizedQuery.length() > SHORT_QUERY_MAX;
+        double threshold = useTrigrams ? BASE_THRESHOLD : SHORT_THRESHOLD;
+        List<BookSearchIndex.Match> ranked = bookSearch.search(query, normalizedQuery, useTrigrams, depth);
+        List<String> isbns = closeMatchesOrFallback(ranked, BookSearchIndex.Match::getScore, threshold, true).stream()
+                .map(BookSearchIndex.Match::getIsbn)
                 .collect(Collectors.toList());
+        Map<String, Book> found = books.findAllById(isbns);
+        List<Book> results = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            Book book = found.get(isbn);
+            if (book != null) {
+                results.add(book);
+            }
+        }
+        return results;
     }
 
-    private List<Member> fuzzySearchMembers(List<Member> allMembers, String query) {
-        String normalizedQuery = normalize(query);
+    private List<Member> fuzzySearchMembers(List<Member> allMembers, String query, boolean allowFallback, int depth) {
+        String normalizedQuery = FuzzyText.normalize(query);
         if (normalizedQuery.length() < 2) {
             return allMembers.stream()
                     .filter(member -> matches(member, query))
                     .sorted(Comparator.comparing(Member::getName, String.CASE_INSENSITIVE_ORDER)
                             .thenComparing(Member::getMemberId, String.CASE_INSENSITIVE_ORDER))
+                    .limit(depth)
                     .collect(Collectors.toList());
         }
         boolean useTrigrams = normalizedQuery.length() > SHORT_QUERY_MAX;
         double threshold = useTrigrams ? BASE_THRESHOLD : SHORT_THRESHOLD;
-        List<MemberScore> scored = new ArrayList<>();
-        for (Member member : allMembers) {
-            double score = similarityScore(query, normalizedQuery, member, useTrigrams);
-            if (score > 0.0) {
-                scored.add(new MemberScore(member, score));
-            }
-        }
-        scored.sort(Comparator.comparingDouble(MemberScore::getScore).reversed()
-                .thenComparing(score -> score.getMember().getName(), String.CASE_INSENSITIVE_ORDER));
-        List<MemberScore> closeMatches = scored.stream()
-                .filter(score -> score.getScore() >= threshold)
+        List<MemberScore> ranked = rank(allMembers, new RankTask.Ranking<>(depth, MemberScore.ORDER,
+                MemberScore::getScore, () -> memberScorer(query, new NgramMatcher(normalizedQuery, useTrigrams))));
+        return closeMatchesOrFallback(ranked, MemberScore::getScore, threshold, allowFallback).stream()
+                .map(MemberScore::getMember)
                 .collect(Collectors.toList());
-        if (!closeMatches.isEmpty()) {
-            return closeMatches.stream()
-                    .map(MemberScore::getMember)
-                    .collect(Collectors.toList());
+    }
+
+    private RankTask.Scorer<Book, BookScore> bookScorer(String query, NgramMatcher matcher) {
+        return (book, position, floor) -> {
+            double score = similarityScore(query, matcher, book, floor);
+            return score > 0.0 && score >= floor ? new BookScore(book, score, position) : null;
+        };
+    }
+
+    private RankTask.Scorer<Member, MemberScore> memberScorer(String query, NgramMatcher matcher) {
+        return (member, position, floor) -> {
+            double score = similarityScore(query, matcher, member, floor);
+            return score > 0.0 && score >= floor ? new MemberScore(member, score, position) : null;
+        };
+    }
+
+    private <T, S> List<S> rank(List<T> candidates, RankTask.Ranking<T, S> ranking) {
+        int threshold = parallelSearchThreshold;
+        if (threshold <= 0 || candidates.size() < threshold) {
+            return new RankTask<>(candidates, candidates.size(), ranking).rankSequentially();
+        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int leafSize = candidates.size() / (pool.getParallelism() * LEAVES_PER_WORKER);
+        return pool.invoke(new RankTask<>(candidates, leafSize, ranking));
+    }
+
+    private <T> List<T> closeMatchesOrFallback(List<T> ranked, ToDoubleFunction<T> score, double threshold,
+                                               boolean allowFallback) {
+        int closeMatches = 0;
+        while (closeMatches < ranked.size() && score.applyAsDouble(ranked.get(closeMatches)) >= threshold) {
+            closeMatches++;
+        }
+        if (closeMatches > 0) {
+            return ranked.subList(0, closeMatches);
         }
-        if (scored.isEmpty()) {
+        if (!allowFallback) {
             return new ArrayList<>();
         }
-        int limit = Math.min(FALLBACK_LIMIT, scored.size());
-        return scored.stream()
-                .limit(limit)
-                .map(MemberScore::getMember)
-                .collect(Collectors.toList());
+        return ranked.subList(0, Math.min(FALLBACK_LIMIT, ranked.size()));
+    }
+
+    private static int searchDepth(int limit, int offset) {
+        if (limit <= 0) {
+            throw new ValidationException("Limit must be positive");
+        }
+        if (offset < 0) {
+            throw new ValidationException("Offset must not be negative");
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (long) limit + offset);
+    }
+
+    private static <T> boolean fillsWithExactMatches(List<T> ranked, int depth, Predicate<T> exact) {
+        return ranked.size() >= depth && exact.test(ranked.get(depth - 1));
+    }
+
+    private static <T> List<T> skip(List<T> results, int offset) {
+        if (offset == 0) {
+            return results;
+        }
+        if (offset >= results.size()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(results.subList(offset, results.size()));
+    }
+
+    private static List<String> complete(PrefixIndex<?> index, String prefix, int limit) {
+        if (limit <= 0) {
+            throw new ValidationException("Limit must be positive");
+        }
+        String normalized = FuzzyText.normalize(prefix);
+        if (normalized.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return index.complete(normalized, limit);
     }
 
     private LocalDate calculateDueDateForUpdatedLoan(Loan loan, LocalDate oldLoanDate, LocalDate oldDueDate) {
@@ -698,140 +943,50 @@ public class LibraryService {
         return oldDueDate;
     }
 
-    private double similarityScore(String rawQuery, String normalizedQuery, Book book, boolean useTrigrams) {
+    private double similarityScore(String rawQuery, NgramMatcher matcher, Book book, double floor) {
         if (matches(book, rawQuery)) {
             return 1.0;
         }
-        return bestSimilarity(normalizedQuery, book, useTrigrams);
+        return bestSimilarity(matcher, book, floor);
     }
 
-    private double similarityScore(String rawQuery, String normalizedQuery, Member member, boolean useTrigrams) {
+    private double similarityScore(String rawQuery, NgramMatcher matcher, Member member, double floor) {
         if (matches(member, rawQuery)) {
             return 1.0;
         }
-        return bestSimilarity(normalizedQuery, member, useTrigrams);
+        return bestSimilarity(matcher, member, floor);
     }
 
-    private double bestSimilarity(String normalizedQuery, Book book, boolean useTrigrams) {
+    private double bestSimilarity(NgramMatcher matcher, Book book, double floor) {
         double best = 0.0;
-        best = Math.max(best, bestFieldSimilarity(normalizedQuery, book.getTitle(), useTrigrams));
-        best = Math.max(best, bestFieldSimilarity(normalizedQuery, book.getAuthor(), useTrigrams));
-        best = Math.max(best, bestFieldSimilarity(normalizedQuery, book.getGenre(), useTrigrams));
-        best = Math.max(best, bestFieldSimilarity(normalizedQuery, book.getIsbn(), useTrigrams));
-        best = Math.max(best, bestFieldSimilarity(normalizedQuery, book.getBookId(), useTrigrams));
+        best = Math.max(best, matcher.bestFieldSimilarity(book.getTitle(), Math.max(floor, best)));
+        best = Math.max(best, matcher.bestFieldSimilarity(book.getAuthor(), Math.max(floor, best)));
+        best = Math.max(best, matcher.bestFieldSimilarity(book.getGenre(), Math.max(floor, best)));
+        best = Math.max(best, matcher.bestFieldSimilarity(book.getIsbn(), Math.max(floor, best)));
+        best = Math.max(best, matcher.bestFieldSimilarity(book.getBookId(), Math.max(floor, best)));
         return best;
     }
 
-    private double bestSimilarity(String normalizedQuery, Member member, boolean useTrigrams) {
+    private double bestSimilarity(NgramMatcher matcher, Member member, double floor) {
         double best = 0.0;
-        best = Math.max(best, bestFieldSimilarity(normalizedQuery, member.getName(), useTrigrams));
-        best = Math.max(best, bestFieldSimilarity(normalizedQuery, member.getMemberId(), useTrigrams));
-        best = Math.max(best, bestFieldSimilarity(normalizedQuery, member.getEmail(), useTrigrams));
-        return best;
-    }
-
-    private double bestFieldSimilarity(String normalizedQuery, String value, boolean useTrigrams) {
-        if (normalizedQuery == null || normalizedQuery.isEmpty() || value == null) {
-            return 0.0;
-        }
-        String normalizedValue = normalize(value);
-        double best = ngramSimilarityNormalized(normalizedQuery, normalizedValue, useTrigrams);
-        for (String token : tokenize(value)) {
-            String normalizedToken = normalize(token);
-            if (normalizedToken.isEmpty()) {
-                continue;
-            }
-            double score = ngramSimilarityNormalized(normalizedQuery, normalizedToken, useTrigrams);
-            score *= lengthPenalty(normalizedQuery.length(), normalizedToken.length());
-            if (score > best) {
-                best = score;
-            }
-        }
+        best = Math.max(best, matcher.bestFieldSimilarity(member.getName(), Math.max(floor, best)));
+        best = Math.max(best, matcher.bestFieldSimilarity(member.getMemberId(), Math.max(floor, best)));
+        best = Math.max(best, matcher.bestFieldSimilarity(member.getEmail(), Math.max(floor, best)));
         return best;
     }
 
-    private double ngramSimilarityNormalized(String normalizedQuery, String normalizedValue, boolean useTrigrams) {
-        if (normalizedQuery == null || normalizedQuery.isEmpty() || normalizedValue == null || normalizedValue.isEmpty()) {
-            return 0.0;
-        }
-        Set<String> gramsA = new HashSet<>();
-        addNgrams(gramsA, normalizedQuery, 2);
-        if (useTrigrams) {
-            addNgrams(gramsA, normalizedQuery, 3);
-        }
-        Set<String> gramsB = new HashSet<>();
-        addNgrams(gramsB, normalizedValue, 2);
-        if (useTrigrams) {
-            addNgrams(gramsB, normalizedValue, 3);
-        }
-        if (gramsA.isEmpty() || gramsB.isEmpty()) {
-            return 0.0;
-        }
-        int intersection = 0;
-        for (String gram : gramsA) {
-            if (gramsB.contains(gram)) {
-                intersection++;
-            }
-        }
-        int union = gramsA.size() + gramsB.size() - intersection;
-        if (union == 0) {
-            return 0.0;
-        }
-        return (double) intersection / union;
-    }
-
-    private void addNgrams(Set<String> target, String value, int n) {
-        if (value.length() < n) {
-            return;
-        }
-        for (int i = 0; i <= value.length() - n; i++) {
-            target.add(value.substring(i, i + n));
-        }
-    }
-
-    private String normalize(String value) {
-        if (value == null) {
-            return "";
-        }
-        String lower = value.toLowerCase();
-        StringBuilder builder = new StringBuilder(lower.length());
-        for (int i = 0; i < lower.length(); i++) {
-            char ch = lower.charAt(i);
-            if (Character.isLetterOrDigit(ch)) {
-                builder.append(ch);
-            }
-        }
-        return builder.toString();
-    }
-
-    private List<String> tokenize(String value) {
-        String[] rawTokens = value.toLowerCase().split("[^a-z0-9]+");
-        List<String> tokens = new ArrayList<>();
-        for (String token : rawTokens) {
-            if (!token.isEmpty()) {
-                tokens.add(token);
-            }
-        }
-        return tokens;
-    }
-
-    private double lengthPenalty(int queryLength, int tokenLength) {
-        if (queryLength <= 0 || tokenLength <= 0) {
-            return 0.0;
-        }
-        int min = Math.min(queryLength, tokenLength);
-        int max = Math.max(queryLength, tokenLength);
-        double ratio = min / (double) max;
-        return ratio * ratio;
-    }
-
     private static class BookScore {
+        private static final Comparator<BookScore> ORDER = Comparator.comparingDouble(BookScore::getScore).reversed()
+                .thenComparing(score -> score.getBook().getTitle(), String.CASE_INSENSITIVE_ORDER)
+                .thenComparingInt(BookScore::getPosition);
         private final Book book;
         private final double score;
+        private final int position;
 
-        private BookScore(Book book, double score) {
+        private BookScore(Book book, double score, int position) {
             this.book = book;
             this.score = score;
+            this.position = position;
         }
 
         public Book getBook() {
@@ -841,15 +996,25 @@ public class LibraryService {
         public double getScore() {
             return score;
         }
+
+        public int getPosition() {
+            return position;
+        }
     }
 
     private static class MemberScore {
+        private static final Comparator<MemberScore> ORDER = Comparator.comparingDouble(MemberScore::getScore)
+                .reversed()
+                .thenComparing(score -> score.getMember().getName(), String.CASE_INSENSITIVE_ORDER)
+                .thenComparingInt(MemberScore::getPosition);
         private final Member member;
         private final double score;
+        private final int position;
 
-        private MemberScore(Member member, double score) {
+        private MemberScore(Member member, double score, int position) {
             this.member = member;
             this.score = score;
+            this.position = position;
         }
 
         public Member getMember() {
@@ -859,5 +1024,9 @@ public class LibraryService {
         public double getScore() {
             return score;
         }
+
+        public int getPosition() {
+            return position;
+        }
     }
-}
\ No newline at end of file
+}
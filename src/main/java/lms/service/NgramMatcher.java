@@ -0,0 +1,68 @@
+package lms.service;
+
+final class NgramMatcher {
+    private final int queryLength;
+    private final boolean useTrigrams;
+    private final GramSet query = new GramSet();
+    private final GramSet value = new GramSet();
+
+    NgramMatcher(String normalizedQuery, boolean useTrigrams) {
+        this.queryLength = normalizedQuery.length();
+        this.useTrigrams = useTrigrams;
+        query.loadNormalized(normalizedQuery, useTrigrams);
+    }
+
+    double bestFieldSimilarity(String fieldValue, double floor) {
+        if (queryLength == 0 || fieldValue == null) {
+            return 0.0;
+        }
+        String lower = fieldValue.toLowerCase();
+        double best = 0.0;
+        if (upperBound(normalizedLength(lower)) >= floor) {
+            value.loadNormalized(lower, useTrigrams);
+            best = Math.min(FuzzyText.MAX_SIMILARITY, query.jaccard(value));
+        }
+        int i = 0;
+        while (i < lower.length()) {
+            if (!isTokenChar(lower.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < lower.length() && isTokenChar(lower.charAt(i))) {
+                i++;
+            }
+            double penalty = FuzzyText.lengthPenalty(queryLength, i - start);
+            double bound = upperBound(i - start) * penalty;
+            if (bound < floor || bound <= best) {
+                continue;
+            }
+            value.loadRange(lower, start, i, useTrigrams);
+            double score = Math.min(FuzzyText.MAX_SIMILARITY, query.jaccard(value));
+            score *= penalty;
+            if (score > best) {
+                best = score;
+            }
+        }
+        return best;
+    }
+
+    private double upperBound(int normalizedLength) {
+        int maxGrams = Math.max(0, normalizedLength - 1) + (useTrigrams ? Math.max(0, normalizedLength - 2) : 0);
+        return maxGrams >= query.size() ? 1.0 : (double) maxGrams / query.size();
+    }
+
+    private static int normalizedLength(String lower) {
+        int length = 0;
+        for (int i = 0; i < lower.length(); i++) {
+            if (Character.isLetterOrDigit(lower.charAt(i))) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isTokenChar(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9');
+    }
+}
@@ -0,0 +1,247 @@
+package lms.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import lms.model.Identifiable;
+import lms.storage.Repository;
+
+class PrefixIndex<T extends Identifiable<String>> {
+    private static final int MIN_COMPACTION_CHANGES = 1024;
+    private static final int HEAD_CHARS = Long.SIZE / Character.SIZE;
+    private static final Comparator<Entry> ORDER = PrefixIndex::compareEntries;
+    private final Repository<T, String> repository;
+    private final Function<T, List<String>> phrasesOf;
+    private final Map<String, Phrase> phrases = new HashMap<>();
+    private final Map<String, List<Phrase>> phrasesByOwner = new HashMap<>();
+    private final TreeSet<Entry> recent = new TreeSet<>(ORDER);
+    private Entry[] sorted = new Entry[0];
+    private int garbage;
+    private boolean loading;
+    private boolean built;
+
+    PrefixIndex(Repository<T, String> repository, Function<T, List<String>> phrasesOf) {
+        this.repository = repository;
+        this.phrasesOf = phrasesOf;
+    }
+
+    synchronized void rebuild() {
+        phrases.clear();
+        phrasesByOwner.clear();
+        built = true;
+        loading = true;
+        try {
+            repository.forEach(this::track);
+        } finally {
+            loading = false;
+        }
+        compact();
+    }
+
+    synchronized void track(T item) {
+        if (!built) {
+            return;
+        }
+        String id = item.getId();
+        release(phrasesByOwner.remove(id));
+        List<Phrase> owned = new ArrayList<>();
+        for (String text : phrasesOf.apply(item)) {
+            if (text == null || text.isBlank()) {
+                continue;
+            }
+            Phrase phrase = phrases.computeIfAbsent(text.trim(), this::attach);
+            if (!owned.contains(phrase)) {
+                phrase.refs++;
+                owned.add(phrase);
+            }
+        }
+        if (!owned.isEmpty()) {
+            phrasesByOwner.put(id, owned);
+        }
+        compactIfNeeded();
+    }
+
+    synchronized void remove(String id) {
+        if (!built) {
+            return;
+        }
+        release(phrasesByOwner.remove(id));
+        compactIfNeeded();
+    }
+
+    synchronized List<String> complete(String normalizedPrefix, int limit) {
+        if (!built) {
+            rebuild();
+        }
+        char[] prefix = normalizedPrefix.toCharArray();
+        Entry probe = new Entry(new Phrase("", prefix), 0, true);
+        int next = lowerBound(probe);
+        Iterator<Entry> recentEntries = recent.tailSet(probe, true).iterator();
+        Entry nextRecent = recentEntries.hasNext() ? recentEntries.next() : null;
+        Set<String> completions = new LinkedHashSet<>();
+        while (completions.size() < limit) {
+            Entry entry;
+            if (nextRecent != null && (next >= sorted.length || ORDER.compare(nextRecent, sorted[next]) < 0)) {
+                entry = nextRecent;
+                nextRecent = recentEntries.hasNext() ? recentEntries.next() : null;
+            } else if (next < sorted.length) {
+                entry = sorted[next++];
+            } else {
+                break;
+            }
+            if (!entry.startsWith(prefix)) {
+                break;
+            }
+            if (entry.phrase.refs > 0) {
+                completions.add(entry.phrase.text);
+            }
+        }
+        return new ArrayList<>(completions);
+    }
+
+    private Phrase attach(String text) {
+        String lower = text.toLowerCase();
+        char[] normalized = new char[lower.length()];
+        int length = 0;
+        int[] tokenStarts = new int[lower.length()];
+        int tokens = 0;
+        boolean inToken = false;
+        for (int i = 0; i < lower.length(); i++) {
+            char ch = lower.charAt(i);
+            boolean tokenChar = Character.isLetterOrDigit(ch);
+            if (tokenChar) {
+                if (!inToken) {
+                    tokenStarts[tokens++] = length;
+                }
+                normalized[length++] = ch;
+            }
+            inToken = tokenChar;
+        }
+        Phrase phrase = new Phrase(text, Arrays.copyOf(normalized, length));
+        phrase.tokenStarts = Arrays.copyOf(tokenStarts, tokens);
+        if (!loading) {
+            for (int offset : phrase.tokenStarts) {
+                recent.add(new Entry(phrase, offset, false));
+            }
+        }
+        return phrase;
+    }
+
+    private void release(List<Phrase> owned) {
+        if (owned == null) {
+            return;
+        }
+        for (Phrase phrase : owned) {
+            if (--phrase.refs > 0) {
+                continue;
+            }
+            phrases.remove(phrase.text);
+            if (phrase.compacted) {
+                garbage += phrase.tokenStarts.length;
+            } else {
+                for (int offset : phrase.tokenStarts) {
+                    recent.remove(new Entry(phrase, offset, false));
+                }
+            }
+        }
+    }
+
+    private void compactIfNeeded() {
+        int changes = recent.size() + garbage;
+        if (changes >= MIN_COMPACTION_CHANGES && changes >= sorted.length) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        List<Entry> live = new ArrayList<>();
+        for (Phrase phrase : phrases.values()) {
+            phrase.compacted = true;
+            for (int offset : phrase.tokenStarts) {
+                live.add(new Entry(phrase, offset, false));
+            }
+        }
+        Entry[] entries = live.toArray(new Entry[0]);
+        Arrays.sort(entries, ORDER);
+        sorted = entries;
+        recent.clear();
+        garbage = 0;
+    }
+
+    private int lowerBound(Entry probe) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ORDER.compare(sorted[middle], probe) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int compareEntries(Entry left, Entry right) {
+        int cmp = Long.compareUnsigned(left.head, right.head);
+        if (cmp != 0) {
+            return cmp;
+        }
+        char[] a = left.phrase.normalized;
+        char[] b = right.phrase.normalized;
+        cmp = Arrays.compare(a, left.offset, a.length, b, right.offset, b.length);
+        if (cmp != 0) {
+            return cmp;
+        }
+        if (left.probe != right.probe) {
+            return left.probe ? -1 : 1;
+        }
+        cmp = Arrays.compare(a, b);
+        return cmp != 0 ? cmp : left.phrase.text.compareTo(right.phrase.text);
+    }
+
+    private static final class Phrase {
+        private final String text;
+        private final char[] normalized;
+        private int[] tokenStarts;
+        private int refs;
+        private boolean compacted;
+
+        private Phrase(String text, char[] normalized) {
+            this.text = text;
+            this.normalized = normalized;
+        }
+    }
+
+    private static final class Entry {
+        private final Phrase phrase;
+        private final int offset;
+        private final long head;
+        private final boolean probe;
+
+        private Entry(Phrase phrase, int offset, boolean probe) {
+            this.phrase = phrase;
+            this.offset = offset;
+            this.probe = probe;
+            long packed = 0;
+            for (int i = offset; i < offset + HEAD_CHARS; i++) {
+                packed = packed << Character.SIZE | (i < phrase.normalized.length ? phrase.normalized[i] : 0);
+            }
+            this.head = packed;
+        }
+
+        private boolean startsWith(char[] prefix) {
+            char[] normalized = phrase.normalized;
+            return normalized.length - offset >= prefix.length
+                    && Arrays.mismatch(normalized, offset, offset + prefix.length, prefix, 0, prefix.length) < 0;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package lms.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+final class RankTask<T, S> extends RecursiveTask<List<S>> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<T> candidates;
+    private final int from;
+    private final int to;
+    private final int leafSize;
+    private final Ranking<T, S> ranking;
+
+    RankTask(List<T> candidates, int leafSize, Ranking<T, S> ranking) {
+        this(candidates, 0, candidates.size(), Math.max(1, leafSize), ranking);
+    }
+
+    private RankTask(List<T> candidates, int from, int to, int leafSize, Ranking<T, S> ranking) {
+        this.candidates = candidates;
+        this.from = from;
+        this.to = to;
+        this.leafSize = leafSize;
+        this.ranking = ranking;
+    }
+
+    List<S> rankSequentially() {
+        return rankRange(from, to);
+    }
+
+    @Override
+    protected List<S> compute() {
+        if (to - from <= leafSize) {
+            return rankRange(from, to);
+        }
+        int middle = (from + to) >>> 1;
+        RankTask<T, S> left = new RankTask<>(candidates, from, middle, leafSize, ranking);
+        RankTask<T, S> right = new RankTask<>(candidates, middle, to, leafSize, ranking);
+        left.fork();
+        List<S> rightRanked = right.compute();
+        return merge(left.join(), rightRanked);
+    }
+
+    private List<S> merge(List<S> left, List<S> right) {
+        int size = Math.min(ranking.depth, left.size() + right.size());
+        List<S> merged = new ArrayList<>(size);
+        int i = 0;
+        int j = 0;
+        while (merged.size() < size) {
+            if (j >= right.size() || (i < left.size() && ranking.order.compare(left.get(i), right.get(j)) <= 0)) {
+                merged.add(left.get(i++));
+            } else {
+                merged.add(right.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    private List<S> rankRange(int start, int end) {
+        Scorer<T, S> scorer = ranking.scorers.get();
+        TopK<S> top = new TopK<>(ranking.depth, ranking.order);
+        for (int i = start; i < end; i++) {
+            double floor = top.isFull() ? ranking.scoreOf.applyAsDouble(top.worst()) : 0.0;
+            S scored = scorer.score(candidates.get(i), i, floor);
+            if (scored != null) {
+                top.offer(scored);
+            }
+        }
+        return top.toSortedList();
+    }
+
+    interface Scorer<T, S> {
+        S score(T candidate, int position, double floor);
+    }
+
+    static final class Ranking<T, S> {
+        private final int depth;
+        private final Comparator<? super S> order;
+        private final ToDoubleFunction<? super S> scoreOf;
+        private final Supplier<Scorer<T, S>> scorers;
+
+        Ranking(int depth, Comparator<? super S> order, ToDoubleFunction<? super S> scoreOf,
+                Supplier<Scorer<T, S>> scorers) {
+            this.depth = depth;
+            this.order = order;
+            this.scoreOf = scoreOf;
+            this.scorers = scorers;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package lms.service;
+
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+
+final class RankedSet<E> {
+    private final Comparator<? super E> order;
+    private Node<E> root;
+
+    RankedSet(Comparator<? super E> order) {
+        this.order = order;
+    }
+
+    boolean add(E value) {
+        if (contains(value)) {
+            return false;
+        }
+        root = insert(root, new Node<>(value));
+        return true;
+    }
+
+    boolean remove(E value) {
+        if (!contains(value)) {
+            return false;
+        }
+        root = remove(root, value);
+        return true;
+    }
+
+    boolean contains(E value) {
+        Node<E> node = root;
+        while (node != null) {
+            int cmp = order.compare(value, node.value);
+            if (cmp == 0) {
+                return true;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return false;
+    }
+
+    int rank(E value) {
+        int rank = 0;
+        Node<E> node = root;
+        while (node != null) {
+            if (order.compare(node.value, value) < 0) {
+                rank += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return rank;
+    }
+
+    E first() {
+        Node<E> node = root;
+        if (node == null) {
+            return null;
+        }
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.value;
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    boolean isEmpty() {
+        return root == null;
+    }
+
+    private Node<E> insert(Node<E> node, Node<E> created) {
+        if (node == null) {
+            return created;
+        }
+        if (order.compare(created.value, node.value) < 0) {
+            node.left = insert(node.left, created);
+            if (node.left.priority > node.priority) {
+                return rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, created);
+            if (node.right.priority > node.priority) {
+                return rotateLeft(node);
+            }
+        }
+        return node.update();
+    }
+
+    private static <E> Node<E> rotateRight(Node<E> node) {
+        Node<E> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node.update();
+        return pivot.update();
+    }
+
+    private static <E> Node<E> rotateLeft(Node<E> node) {
+        Node<E> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node.update();
+        return pivot.update();
+    }
+
+    private Node<E> merge(Node<E> left, Node<E> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return left.update();
+        }
+        right.left = merge(left, right.left);
+        return right.update();
+    }
+
+    private Node<E> remove(Node<E> node, E value) {
+        int cmp = order.compare(value, node.value);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = remove(node.left, value);
+        } else {
+            node.right = remove(node.right, value);
+        }
+        return node.update();
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node<E> {
+        private final E value;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private Node<E> left;
+        private Node<E> right;
+        private int size = 1;
+
+        private Node(E value) {
+            this.value = value;
+        }
+
+        private Node<E> update() {
+            size = 1 + size(left) + size(right);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package lms.service;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lms.model.Reservation;
+import lms.model.ReservationStatus;
+import lms.storage.Repository;
+import lms.storage.query.Query;
+import lms.storage.query.ReservationFields;
+
+class ReservationQueueIndex {
+    private static final Comparator<Entry> QUEUE_ORDER = Comparator
+            .comparing((Entry entry) -> entry.createdAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingLong(entry -> entry.sequence);
+    private final Repository<Reservation, String> reservations;
+    private final Map<String, IsbnQueue> queues = new HashMap<>();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final ThreadLocal<Map<String, Entry>> undoLog = new ThreadLocal<>();
+    private long nextSequence;
+
+    ReservationQueueIndex(Repository<Reservation, String> reservations) {
+        this.reservations = reservations;
+    }
+
+    synchronized void rebuild() {
+        queues.clear();
+        entries.clear();
+        nextSequence = 0;
+        reservations.forEach(Query.<Reservation>all()
+                .in(ReservationFields.STATUS, List.of(ReservationStatus.QUEUED, ReservationStatus.READY))
+                .orderBy(ReservationFields.CREATED_AT), this::track);
+    }
+
+    synchronized String readyReservationId(String isbn) {
+        IsbnQueue queue = queues.get(isbn);
+        return queue == null ? null : queue.readyId;
+    }
+
+    synchronized String nextQueuedId(String isbn) {
+        IsbnQueue queue = queues.get(isbn);
+        return queue == null || queue.queued.isEmpty() ? null : queue.queued.first().reservationId;
+    }
+
+    synchronized int queuePosition(String reservationId) {
+        Entry entry = entries.get(reservationId);
+        if (entry == null) {
+            return -1;
+        }
+        if (entry.status == ReservationStatus.READY) {
+            return 0;
+        }
+        return queues.get(entry.isbn).queued.rank(entry) + 1;
+    }
+
+    synchronized void track(Reservation reservation) {
+        Entry previous = detach(reservation.getReservationId());
+        ReservationStatus status = reservation.getStatus();
+        if (status != ReservationStatus.QUEUED && status != ReservationStatus.READY) {
+            return;
+        }
+        long sequence = previous == null ? nextSequence++ : previous.sequence;
+        attach(new Entry(reservation.getReservationId(), reservation.getIsbn(), reservation.getCreatedAt(),
+                status, sequence));
+    }
+
+    synchronized void remove(String reservationId) {
+        detach(reservationId);
+    }
+
+    void beginUndoLog() {
+        undoLog.set(new HashMap<>());
+    }
+
+    synchronized void rollbackUndoLog() {
+        Map<String, Entry> previous = undoLog.get();
+        undoLog.remove();
+        if (previous == null) {
+            return;
+        }
+        for (Map.Entry<String, Entry> change : previous.entrySet()) {
+            removeEntry(change.getKey());
+            if (change.getValue() != null) {
+                attach(change.getValue());
+            }
+        }
+    }
+
+    void clearUndoLog() {
+        undoLog.remove();
+    }
+
+    private Entry detach(String reservationId) {
+        Map<String, Entry> log = undoLog.get();
+        if (log != null && !log.containsKey(reservationId)) {
+            log.put(reservationId, entries.get(reservationId));
+        }
+        return removeEntry(reservationId);
+    }
+
+    private Entry removeEntry(String reservationId) {
+        Entry entry = entries.remove(reservationId);
+        if (entry == null) {
+            return null;
+        }
+        IsbnQueue queue = queues.get(entry.isbn);
+        if (entry.status == ReservationStatus.READY) {
+            if (reservationId.equals(queue.readyId)) {
+                queue.readyId = null;
+            }
+        } else {
+            queue.queued.remove(entry);
+        }
+        if (queue.readyId == null && queue.queued.isEmpty()) {
+            queues.remove(entry.isbn);
+        }
+        return entry;
+    }
+
+    private void attach(Entry entry) {
+        entries.put(entry.reservationId, entry);
+        IsbnQueue queue = queues.computeIfAbsent(entry.isbn, isbn -> new IsbnQueue());
+        if (entry.status == ReservationStatus.READY) {
+            if (queue.readyId == null) {
+                queue.readyId = entry.reservationId;
+            }
+        } else {
+            queue.queued.add(entry);
+        }
+    }
+
+    private static final class IsbnQueue {
+        private final RankedSet<Entry> queued = new RankedSet<>(QUEUE_ORDER);
+        private String readyId;
+    }
+
+    private static final class Entry {
+        private final String reservationId;
+        private final String isbn;
+        private final LocalDate createdAt;
+        private final ReservationStatus status;
+        private final long sequence;
+
+        private Entry(String reservationId, String isbn, LocalDate createdAt, ReservationStatus status,
+                      long sequence) {
+            this.reservationId = reservationId;
+            this.isbn = isbn;
+            this.createdAt = createdAt;
+            this.status = status;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package lms.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+final class TopK<T> {
+    private static final int INITIAL_CAPACITY = 16;
+    private final int capacity;
+    private final Comparator<? super T> order;
+    private final PriorityQueue<T> heap;
+
+    TopK(int capacity, Comparator<? super T> order) {
+        this.capacity = capacity;
+        this.order = order;
+        this.heap = new PriorityQueue<>(Math.min(capacity, INITIAL_CAPACITY), Collections.reverseOrder(order));
+    }
+
+    void offer(T item) {
+        if (heap.size() < capacity) {
+            heap.add(item);
+        } else if (order.compare(item, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(item);
+        }
+    }
+
+    boolean isFull() {
+        return heap.size() >= capacity;
+    }
+
+    T worst() {
+        return heap.peek();
+    }
+
+    List<T> toSortedList() {
+        List<T> items = new ArrayList<>(heap);
+        items.sort(order);
+        return items;
+    }
+}
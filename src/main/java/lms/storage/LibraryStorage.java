@@ -5,6 +5,7 @@ import lms.model.BookCopy;
 import lms.model.Loan;
 import lms.model.Member;
 import lms.model.Reservation;
+import java.util.Optional;
 import java.util.function.Supplier;
 
 public interface LibraryStorage extends AutoCloseable {
@@ -18,6 +19,10 @@ public interface LibraryStorage extends AutoCloseable {
 
     Repository<Reservation, String> reservations();
 
+    default Optional<ReportQueries> reportQueries() {
+        return Optional.empty();
+    }
+
     default void runInTransaction(Runnable action) {
         runInTransaction(() -> {
             action.run();
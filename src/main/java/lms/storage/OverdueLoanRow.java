@@ -0,0 +1,33 @@
+package lms.storage;
+
+import lms.model.Loan;
+
+public class OverdueLoanRow {
+    private final Loan loan;
+    private final String isbn;
+    private final String title;
+    private final String memberName;
+
+    public OverdueLoanRow(Loan loan, String isbn, String title, String memberName) {
+        this.loan = loan;
+        this.isbn = isbn;
+        this.title = title;
+        this.memberName = memberName;
+    }
+
+    public Loan getLoan() {
+        return loan;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getMemberName() {
+        return memberName;
+    }
+}
@@ -0,0 +1,8 @@
+package lms.storage;
+
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+public interface ReportQueries {
+    void forEachOverdueLoan(LocalDate today, Consumer<? super OverdueLoanRow> action);
+}
@@ -1,8 +1,15 @@
 package lms.storage;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import lms.model.Identifiable;
+import lms.storage.query.Field;
+import lms.storage.query.Page;
+import lms.storage.query.Query;
 
 public interface Repository<T extends Identifiable<ID>, ID> {
     void save(T entity);
@@ -14,4 +21,69 @@ public interface Repository<T extends Identifiable<ID>, ID> {
     void deleteById(ID id);
 
     boolean existsById(ID id);
+
+    default Map<ID, T> findAllById(Collection<ID> ids) {
+        Map<ID, T> found = new HashMap<>();
+        for (ID id : ids) {
+            if (id != null && !found.containsKey(id)) {
+                findById(id).ifPresent(entity -> found.put(id, entity));
+            }
+        }
+        return found;
+    }
+
+    default void saveAll(Collection<T> entities) {
+        for (T entity : entities) {
+            save(entity);
+        }
+    }
+
+    default void deleteAllById(Collection<ID> ids) {
+        for (ID id : ids) {
+            deleteById(id);
+        }
+    }
+
+    default List<T> findBy(Query<T> query) {
+        return query.apply(findAll().stream());
+    }
+
+    default Optional<T> findFirst(Query<T> query) {
+        List<T> matches = findBy(query.copy().limit(1));
+        return matches.isEmpty() ? Optional.empty() : Optional.of(matches.get(0));
+    }
+
+    default void forEach(Consumer<? super T> action) {
+        findAll().forEach(action);
+    }
+
+    default void forEach(Query<T> query, Consumer<? super T> action) {
+        findBy(query).forEach(action);
+    }
+
+    default <K extends Comparable<? super K>> Page<T> findPage(Field<T, K> key, K afterKey, int pageSize) {
+        return findPage(Query.all(), key, afterKey, pageSize);
+    }
+
+    default <K extends Comparable<? super K>> Page<T> findPage(Query<T> filter, Field<T, K> key, K afterKey,
+                                                               int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        List<T> items = findBy(filter.copy().after(key, afterKey).limit(pageSize + 1));
+        boolean hasNext = items.size() > pageSize;
+        return new Page<>(hasNext ? items.subList(0, pageSize) : items, hasNext);
+    }
+
+    default long count(Query<T> query) {
+        return query.count(findAll().stream());
+    }
+
+    default boolean exists(Query<T> query) {
+        return findFirst(query).isPresent();
+    }
+
+    default Optional<List<T>> findByText(String text, int limit) {
+        return Optional.empty();
+    }
 }
\ No newline at end of file
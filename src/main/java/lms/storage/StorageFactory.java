@@ -3,6 +3,8 @@ package lms.storage;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import lms.storage.file.FileStorage;
+import lms.storage.file.FileStorageSettings;
+import lms.storage.sqlite.SqliteSettings;
 import lms.storage.sqlite.SqliteStorage;
 import lms.util.AppConfig;
 
@@ -16,12 +18,34 @@ public final class StorageFactory {
         StorageMode mode = config.getStorageMode();
         if (mode == StorageMode.SQLITE) {
             try {
-                return new SqliteStorage(config.getDataDir());
+                return new SqliteStorage(config.getDataDir(), createSqliteSettings(config));
             } catch (RuntimeException ex) {
                 LOGGER.log(Level.WARNING, "SQLite init failed, falling back to file storage", ex);
-                return new FileStorage(config.getDataDir());
+                return createFileStorage(config);
             }
         }
-        return new FileStorage(config.getDataDir());
+        return createFileStorage(config);
+    }
+
+    private static SqliteSettings createSqliteSettings(AppConfig config) {
+        SqliteSettings settings = new SqliteSettings();
+        settings.setReaderConnections(config.getSqliteReaderConnections());
+        settings.setStatementCacheSize(config.getSqliteStatementCacheSize());
+        settings.setJournalMode(config.getSqliteJournalMode());
+        settings.setSynchronous(config.getSqliteSynchronous());
+        settings.setCacheSize(config.getSqliteCacheSize());
+        settings.setMmapSize(config.getSqliteMmapSize());
+        settings.setTempStore(config.getSqliteTempStore());
+        settings.setBusyTimeoutMillis(config.getSqliteBusyTimeoutMillis());
+        return settings;
+    }
+
+    private static FileStorage createFileStorage(AppConfig config) {
+        FileStorageSettings settings = new FileStorageSettings();
+        settings.setJournalEnabled(config.isFileJournalEnabled());
+        settings.setJournalCompactBytes(config.getFileJournalCompactBytes());
+        settings.setGroupCommitIntervalMillis(config.getFileGroupCommitIntervalMillis());
+        settings.setGroupCommitMaxMutations(config.getFileGroupCommitMaxMutations());
+        return new FileStorage(config.getDataDir(), settings);
     }
 }
\ No newline at end of file
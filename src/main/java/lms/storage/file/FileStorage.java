@@ -11,10 +11,18 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import lms.exception.StorageException;
 import lms.model.Book;
 import lms.model.BookCopy;
+import lms.model.Identifiable;
 import lms.model.Loan;
 import lms.model.Member;
 import lms.model.Reservation;
@@ -22,12 +30,18 @@ import lms.storage.LibraryStorage;
 import lms.storage.Repository;
 
 public class FileStorage implements LibraryStorage {
+    private static final Logger LOGGER = Logger.getLogger(FileStorage.class.getName());
     private static final String TX_DIR_NAME = ".lms-tx";
     private static final String MANIFEST_NAME = "manifest.txt";
+    private static final String JOURNAL_NAME = "journal.log";
     private final Path base;
     private final Object transactionLock = new Object();
     private final List<JsonFileRepository<?, ?>> repositories = new ArrayList<>();
+    private final StorageJournal journal;
+    private final ExecutorService compactionExecutor;
+    private final GroupCommitFlusher flusher;
     private boolean inTransaction;
+    private boolean compactionScheduled;
     private final JsonFileRepository<Book, String> bookRepository;
     private final JsonFileRepository<BookCopy, String> copyRepository;
     private final JsonFileRepository<Member, String> memberRepository;
@@ -35,23 +49,79 @@ public class FileStorage implements LibraryStorage {
     private final JsonFileRepository<Reservation, String> reservationRepository;
 
     public FileStorage(String dataDir) {
+        this(dataDir, new FileStorageSettings());
+    }
+
+    public FileStorage(String dataDir, FileStorageSettings settings) {
         this.base = Paths.get(dataDir);
         recoverPendingTransaction();
-        this.bookRepository = new JsonFileRepository<>(base.resolve("books.json"),
-                new TypeReference<List<Book>>() { });
-        this.copyRepository = new JsonFileRepository<>(base.resolve("copies.json"),
-                new TypeReference<List<BookCopy>>() { });
-        this.memberRepository = new JsonFileRepository<>(base.resolve("members.json"),
-                new TypeReference<List<Member>>() { });
-        this.loanRepository = new JsonFileRepository<>(base.resolve("loans.json"),
-                new TypeReference<List<Loan>>() { });
-        this.reservationRepository = new JsonFileRepository<>(base.resolve("reservations.json"),
-                new TypeReference<List<Reservation>>() { });
+        ExecutorService loader = Executors.newFixedThreadPool(Math.max(1, settings.getLoadThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "lms-file-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long loadStarted = System.nanoTime();
+        try {
+            Future<JsonFileRepository<Book, String>> books = submitLoad(loader, "books.json",
+                    new TypeReference<List<Book>>() { });
+            Future<JsonFileRepository<BookCopy, String>> copies = submitLoad(loader, "copies.json",
+                    new TypeReference<List<BookCopy>>() { });
+            Future<JsonFileRepository<Member, String>> members = submitLoad(loader, "members.json",
+                    new TypeReference<List<Member>>() { });
+            Future<JsonFileRepository<Loan, String>> loans = submitLoad(loader, "loans.json",
+                    new TypeReference<List<Loan>>() { });
+            Future<JsonFileRepository<Reservation, String>> reservations = submitLoad(loader, "reservations.json",
+                    new TypeReference<List<Reservation>>() { });
+            this.bookRepository = awaitLoad(books, "books.json");
+            this.copyRepository = awaitLoad(copies, "copies.json");
+            this.memberRepository = awaitLoad(members, "members.json");
+            this.loanRepository = awaitLoad(loans, "loans.json");
+            this.reservationRepository = awaitLoad(reservations, "reservations.json");
+        } finally {
+            loader.shutdownNow();
+        }
         repositories.add(bookRepository);
         repositories.add(copyRepository);
         repositories.add(memberRepository);
         repositories.add(loanRepository);
         repositories.add(reservationRepository);
+        int loadedRecords = 0;
+        for (JsonFileRepository<?, ?> repository : repositories) {
+            repository.setMutationLock(transactionLock);
+            loadedRecords += repository.size();
+        }
+        LOGGER.info(String.format("Loaded %d records from %d files in %d ms", loadedRecords, repositories.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStarted)));
+        StorageJournal existingJournal = new StorageJournal(base.resolve(JOURNAL_NAME),
+                settings.getJournalCompactBytes(), this::scheduleCompaction);
+        replayJournal(existingJournal);
+        if (settings.isJournalEnabled()) {
+            this.journal = existingJournal;
+            this.compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "lms-journal-compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (JsonFileRepository<?, ?> repository : repositories) {
+                repository.setJournal(journal);
+            }
+        } else {
+            this.journal = null;
+            this.compactionExecutor = null;
+            if (!existingJournal.isEmpty()) {
+                compactJournal(existingJournal);
+            }
+            existingJournal.close();
+        }
+        if (settings.isGroupCommitEnabled()) {
+            this.flusher = new GroupCommitFlusher(settings.getGroupCommitIntervalMillis(),
+                    settings.getGroupCommitMaxMutations(), this::flushPendingChanges);
+            for (JsonFileRepository<?, ?> repository : repositories) {
+                repository.setFlusher(flusher);
+            }
+        } else {
+            this.flusher = null;
+        }
     }
 
     @Override
@@ -86,29 +156,76 @@ public class FileStorage implements LibraryStorage {
                 return action.get();
             }
             inTransaction = true;
-            List<RepoSnapshot> snapshots = snapshotRepositories();
+            beginUndoLogs();
             setAutoPersist(false);
-            boolean actionCompleted = false;
             try {
                 T result = action.get();
-                actionCompleted = true;
                 commitTransaction();
                 return result;
             } catch (RuntimeException ex) {
-                if (!actionCompleted) {
-                    restoreSnapshots(snapshots);
-                }
+                rollbackUndoLogs();
+                discardPendingChanges();
                 throw ex;
             } finally {
+                clearUndoLogs();
                 setAutoPersist(true);
                 inTransaction = false;
             }
         }
     }
 
+    private <T extends Identifiable<String>> Future<JsonFileRepository<T, String>> submitLoad(
+            ExecutorService loader, String fileName, TypeReference<List<T>> typeReference) {
+        Path file = base.resolve(fileName);
+        return loader.submit(() -> {
+            long started = System.nanoTime();
+            JsonFileRepository<T, String> repository = new JsonFileRepository<>(file, typeReference);
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine(String.format("Loaded %s (%d records) in %d ms", fileName, repository.size(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)));
+            }
+            return repository;
+        });
+    }
+
+    private <R> R awaitLoad(Future<R> future, String fileName) {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof StorageException) {
+                throw (StorageException) cause;
+            }
+            throw new StorageException("Failed to load " + fileName, cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while loading " + fileName, ex);
+        }
+    }
+
+    public void flush() {
+        if (flusher != null) {
+            flusher.flush();
+        }
+    }
+
     @Override
     public void close() {
-        // No-op for file storage.
+        if (flusher != null) {
+            flusher.close();
+        }
+        if (journal == null) {
+            return;
+        }
+        compactionExecutor.shutdown();
+        try {
+            if (!compactionExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                LOGGER.warning("Journal compaction did not finish before shutdown");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
     }
 
     private void setAutoPersist(boolean autoPersist) {
@@ -117,26 +234,113 @@ public class FileStorage implements LibraryStorage {
         }
     }
 
-    private List<RepoSnapshot> snapshotRepositories() {
-        List<RepoSnapshot> snapshots = new ArrayList<>();
+    private void beginUndoLogs() {
         for (JsonFileRepository<?, ?> repository : repositories) {
-            snapshots.add(new RepoSnapshot(repository));
+            repository.beginUndoLog();
         }
-        return snapshots;
     }
 
-    private void restoreSnapshots(List<RepoSnapshot> snapshots) {
-        for (RepoSnapshot snapshot : snapshots) {
-            snapshot.restore();
+    private void rollbackUndoLogs() {
+        for (JsonFileRepository<?, ?> repository : repositories) {
+            repository.rollbackUndoLog();
+        }
+    }
+
+    private void clearUndoLogs() {
+        for (JsonFileRepository<?, ?> repository : repositories) {
+            repository.clearUndoLog();
+        }
+    }
+
+    private void discardPendingChanges() {
+        for (JsonFileRepository<?, ?> repository : repositories) {
+            repository.discardPendingChanges();
+        }
+    }
+
+    private void flushPendingChanges() {
+        synchronized (transactionLock) {
+            commitTransaction();
         }
     }
 
     private void commitTransaction() {
+        if (journal != null) {
+            List<JournalRecord> records = new ArrayList<>();
+            for (JsonFileRepository<?, ?> repository : repositories) {
+                records.addAll(repository.pendingRecords());
+            }
+            journal.append(records);
+            for (JsonFileRepository<?, ?> repository : repositories) {
+                repository.clearPendingChanges();
+            }
+            return;
+        }
+        writeRepositories(dirtyRepositories());
+    }
+
+    private List<JsonFileRepository<?, ?>> dirtyRepositories() {
+        List<JsonFileRepository<?, ?>> dirty = new ArrayList<>();
+        for (JsonFileRepository<?, ?> repository : repositories) {
+            if (repository.isDirty()) {
+                dirty.add(repository);
+            }
+        }
+        return dirty;
+    }
+
+    private void replayJournal(StorageJournal source) {
+        Map<String, JsonFileRepository<?, ?>> byName = new LinkedHashMap<>();
+        for (JsonFileRepository<?, ?> repository : repositories) {
+            byName.put(repository.getName(), repository);
+        }
+        source.replay(record -> {
+            JsonFileRepository<?, ?> repository = byName.get(record.getRepository());
+            if (repository == null) {
+                throw new StorageException("Unknown repository in journal: " + record.getRepository());
+            }
+            repository.applyJournalRecord(record);
+        });
+    }
+
+    private void scheduleCompaction() {
+        synchronized (transactionLock) {
+            if (compactionScheduled || compactionExecutor == null || compactionExecutor.isShutdown()) {
+                return;
+            }
+            compactionScheduled = true;
+            compactionExecutor.execute(() -> {
+                try {
+                    compactJournal(journal);
+                } catch (RuntimeException ex) {
+                    LOGGER.log(Level.WARNING, "Journal compaction failed", ex);
+                } finally {
+                    synchronized (transactionLock) {
+                        compactionScheduled = false;
+                    }
+                }
+            });
+        }
+    }
+
+    private void compactJournal(StorageJournal target) {
+        synchronized (transactionLock) {
+            writeRepositories(dirtyRepositories());
+            target.reset();
+            LOGGER.info("Compacted " + target.getFile().getFileName() + " into snapshot files");
+        }
+    }
+
+    private void writeRepositories(List<JsonFileRepository<?, ?>> targets) {
+        if (targets.isEmpty()) {
+            return;
+        }
         Path txDir = base.resolve(TX_DIR_NAME);
         Map<String, String> manifestEntries = new LinkedHashMap<>();
+        boolean manifestWritten = false;
         try {
             Files.createDirectories(txDir);
-            for (JsonFileRepository<?, ?> repository : repositories) {
+            for (JsonFileRepository<?, ?> repository : targets) {
                 String fileName = repository.getFile().getFileName().toString();
                 String tempName = fileName + ".new";
                 Path tempFile = txDir.resolve(tempName);
@@ -145,6 +349,7 @@ public class FileStorage implements LibraryStorage {
             }
             Path manifest = txDir.resolve(MANIFEST_NAME);
             writeManifest(manifest, manifestEntries);
+            manifestWritten = true;
             for (Map.Entry<String, String> entry : manifestEntries.entrySet()) {
                 Path source = txDir.resolve(entry.getKey());
                 Path target = base.resolve(entry.getValue());
@@ -152,10 +357,19 @@ public class FileStorage implements LibraryStorage {
             }
             deleteIfExists(manifest);
             deleteIfExists(txDir);
+            for (JsonFileRepository<?, ?> repository : targets) {
+                repository.setDirty(false);
+            }
         } catch (IOException ex) {
-            if (Files.exists(txDir.resolve(MANIFEST_NAME))) {
+            if (manifestWritten) {
                 recoverPendingTransaction();
+                LOGGER.log(Level.WARNING, "Completed file storage commit through recovery", ex);
+                for (JsonFileRepository<?, ?> repository : targets) {
+                    repository.setDirty(false);
+                }
+                return;
             }
+            deleteIfExists(txDir.resolve(MANIFEST_NAME));
             throw new StorageException("Failed to commit file storage transaction", ex);
         }
     }
@@ -210,18 +424,4 @@ public class FileStorage implements LibraryStorage {
             // Ignore cleanup failures.
         }
     }
-
-    private static class RepoSnapshot {
-        private final JsonFileRepository repository;
-        private final Map snapshot;
-
-        private RepoSnapshot(JsonFileRepository repository) {
-            this.repository = repository;
-            this.snapshot = repository.snapshot();
-        }
-
-        private void restore() {
-            repository.restoreSnapshot(snapshot);
-        }
-    }
 }
\ No newline at end of file
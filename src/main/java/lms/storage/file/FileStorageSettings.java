@@ -0,0 +1,53 @@
+package lms.storage.file;
+
+public class FileStorageSettings {
+    private boolean journalEnabled;
+    private long journalCompactBytes = 8L * 1024 * 1024;
+    private long groupCommitIntervalMillis;
+    private int groupCommitMaxMutations = 500;
+    private int loadThreads = Math.min(5, Runtime.getRuntime().availableProcessors());
+
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    public void setJournalEnabled(boolean journalEnabled) {
+        this.journalEnabled = journalEnabled;
+    }
+
+    public long getJournalCompactBytes() {
+        return journalCompactBytes;
+    }
+
+    public void setJournalCompactBytes(long journalCompactBytes) {
+        this.journalCompactBytes = journalCompactBytes;
+    }
+
+    public boolean isGroupCommitEnabled() {
+        return groupCommitIntervalMillis > 0;
+    }
+
+    public long getGroupCommitIntervalMillis() {
+        return groupCommitIntervalMillis;
+    }
+
+    public void setGroupCommitIntervalMillis(long groupCommitIntervalMillis) {
+        this.groupCommitIntervalMillis = groupCommitIntervalMillis;
+    }
+
+    public int getGroupCommitMaxMutations() {
+        return groupCommitMaxMutations;
+    }
+
+    public void setGroupCommitMaxMutations(int groupCommitMaxMutations) {
+        this.groupCommitMaxMutations = groupCommitMaxMutations;
+    }
+
+    public int getLoadThreads() {
+        return loadThreads;
+    }
+
+    public void setLoadThreads(int loadThreads) {
+        this.loadThreads = loadThreads;
+    }
+}
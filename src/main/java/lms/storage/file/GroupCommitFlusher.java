@@ -0,0 +1,148 @@
+package lms.storage.file;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import lms.exception.StorageException;
+
+class GroupCommitFlusher implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(GroupCommitFlusher.class.getName());
+    private final long intervalNanos;
+    private final int maxMutations;
+    private final Runnable flushAction;
+    private final Thread thread;
+    private final Object monitor = new Object();
+    private long mutationSequence;
+    private long flushedSequence;
+    private int pendingMutations;
+    private long oldestPendingNanos;
+    private boolean flushRequested;
+    private boolean closed;
+    private RuntimeException lastFailure;
+
+    GroupCommitFlusher(long intervalMillis, int maxMutations, Runnable flushAction) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, intervalMillis));
+        this.maxMutations = Math.max(1, maxMutations);
+        this.flushAction = flushAction;
+        this.thread = new Thread(this::runLoop, "lms-group-commit");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void mutated() {
+        synchronized (monitor) {
+            if (closed) {
+                throw new StorageException("Group commit flusher is closed");
+            }
+            if (pendingMutations == 0) {
+                oldestPendingNanos = System.nanoTime();
+            }
+            pendingMutations++;
+            mutationSequence++;
+            if (pendingMutations >= maxMutations) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    void flush() {
+        synchronized (monitor) {
+            long target = mutationSequence;
+            if (flushedSequence >= target) {
+                return;
+            }
+            flushRequested = true;
+            monitor.notifyAll();
+            while (flushedSequence < target) {
+                if (lastFailure != null) {
+                    throw new StorageException("Group commit flush failed", lastFailure);
+                }
+                if (!thread.isAlive()) {
+                    throw new StorageException("Group commit flusher stopped with unflushed changes");
+                }
+                try {
+                    monitor.wait(100);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new StorageException("Interrupted while waiting for group commit flush", ex);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (monitor) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            monitor.notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (monitor) {
+            if (flushedSequence < mutationSequence) {
+                throw new StorageException("Group commit flusher stopped with unflushed changes", lastFailure);
+            }
+        }
+    }
+
+    private void runLoop() {
+        while (true) {
+            long target;
+            synchronized (monitor) {
+                while (!readyToFlush()) {
+                    if (closed && pendingMutations == 0) {
+                        return;
+                    }
+                    try {
+                        if (pendingMutations == 0) {
+                            monitor.wait();
+                        } else {
+                            long remaining = oldestPendingNanos + intervalNanos - System.nanoTime();
+                            TimeUnit.NANOSECONDS.timedWait(monitor, Math.max(1, remaining));
+                        }
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+                target = mutationSequence;
+                pendingMutations = 0;
+                flushRequested = false;
+            }
+            try {
+                flushAction.run();
+                synchronized (monitor) {
+                    flushedSequence = target;
+                    lastFailure = null;
+                    monitor.notifyAll();
+                }
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Group commit flush failed", ex);
+                synchronized (monitor) {
+                    lastFailure = ex;
+                    pendingMutations += (int) (target - flushedSequence);
+                    oldestPendingNanos = System.nanoTime();
+                    monitor.notifyAll();
+                    if (closed) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean readyToFlush() {
+        if (pendingMutations == 0) {
+            return flushRequested && flushedSequence < mutationSequence;
+        }
+        return closed
+                || flushRequested
+                || pendingMutations >= maxMutations
+                || System.nanoTime() - oldestPendingNanos >= intervalNanos;
+    }
+}
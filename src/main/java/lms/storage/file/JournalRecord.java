@@ -0,0 +1,47 @@
+package lms.storage.file;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+public class JournalRecord {
+    public enum Operation {
+        SAVE,
+        DELETE
+    }
+
+    private String repository;
+    private Operation operation;
+    private JsonNode entity;
+
+    public JournalRecord() {
+    }
+
+    public JournalRecord(String repository, Operation operation, JsonNode entity) {
+        this.repository = repository;
+        this.operation = operation;
+        this.entity = entity;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public void setRepository(String repository) {
+        this.repository = repository;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+
+    public JsonNode getEntity() {
+        return entity;
+    }
+
+    public void setEntity(JsonNode entity) {
+        this.entity = entity;
+    }
+}
@@ -1,8 +1,13 @@
 package lms.storage.file;
 
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import java.io.IOException;
@@ -11,77 +16,266 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.AtomicMoveNotSupportedException;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 import lms.exception.StorageException;
 import lms.model.Identifiable;
 import lms.storage.Repository;
+import lms.storage.query.Query;
 
 public class JsonFileRepository<T extends Identifiable<ID>, ID> implements Repository<T, ID> {
+    private static final Logger LOGGER = Logger.getLogger(JsonFileRepository.class.getName());
+    private static final int PROGRESS_INTERVAL = 100_000;
     private final Path file;
     private final ObjectMapper mapper;
-    private final TypeReference<List<T>> typeReference;
-    private final Map<ID, T> store = new LinkedHashMap<>();
+    private final JavaType elementType;
+    private final OrderedStore<ID, T> store = new OrderedStore<>();
+    private final List<PendingChange<T>> pendingChanges = new ArrayList<>();
+    private Object mutationLock = this;
+    private StorageJournal journal;
+    private GroupCommitFlusher flusher;
+    private int pendingMark;
     private boolean autoPersist = true;
+    private boolean dirty;
+    private Map<ID, Previous<T>> undoLog;
+    private boolean dirtyBeforeUndoLog;
 
     public JsonFileRepository(Path file, TypeReference<List<T>> typeReference) {
         this.file = file;
-        this.typeReference = typeReference;
         this.mapper = new ObjectMapper()
                 .registerModule(new JavaTimeModule())
                 .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.elementType = mapper.getTypeFactory().constructType(typeReference).getContentType();
         load();
     }
 
     @Override
     public void save(T entity) {
-        store.put(entity.getId(), entity);
-        if (autoPersist) {
-            persist();
+        synchronized (mutationLock) {
+            rememberPrevious(entity.getId());
+            store.put(entity.getId(), entity);
+            recordChange(JournalRecord.Operation.SAVE, entity);
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<T> entities) {
+        synchronized (mutationLock) {
+            List<PendingChange<T>> changes = new ArrayList<>();
+            for (T entity : entities) {
+                rememberPrevious(entity.getId());
+                store.put(entity.getId(), entity);
+                changes.add(new PendingChange<>(JournalRecord.Operation.SAVE, entity));
+            }
+            recordChanges(changes);
         }
     }
 
     @Override
     public Optional<T> findById(ID id) {
-        return Optional.ofNullable(store.get(id));
+        synchronized (mutationLock) {
+            return Optional.ofNullable(store.get(id));
+        }
+    }
+
+    @Override
+    public Map<ID, T> findAllById(Collection<ID> ids) {
+        Map<ID, T> found = new HashMap<>();
+        synchronized (mutationLock) {
+            for (ID id : ids) {
+                T entity = store.get(id);
+                if (entity != null) {
+                    found.put(id, entity);
+                }
+            }
+        }
+        return found;
     }
 
     @Override
     public List<T> findAll() {
-        return new ArrayList<>(store.values());
+        synchronized (mutationLock) {
+            return new ArrayList<>(store.values());
+        }
+    }
+
+    @Override
+    public List<T> findBy(Query<T> query) {
+        synchronized (mutationLock) {
+            return query.apply(store.values().stream());
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        synchronized (mutationLock) {
+            store.values().forEach(action);
+        }
+    }
+
+    @Override
+    public void forEach(Query<T> query, Consumer<? super T> action) {
+        synchronized (mutationLock) {
+            query.forEach(store.values().stream(), action);
+        }
+    }
+
+    @Override
+    public long count(Query<T> query) {
+        synchronized (mutationLock) {
+            return query.count(store.values().stream());
+        }
     }
 
     @Override
     public void deleteById(ID id) {
-        store.remove(id);
-        if (autoPersist) {
-            persist();
+        synchronized (mutationLock) {
+            rememberPrevious(id);
+            T removed = store.remove(id);
+            if (removed != null || journal == null) {
+                recordChange(JournalRecord.Operation.DELETE, removed);
+            }
+        }
+    }
+
+    @Override
+    public void deleteAllById(Collection<ID> ids) {
+        synchronized (mutationLock) {
+            List<PendingChange<T>> changes = new ArrayList<>();
+            for (ID id : ids) {
+                rememberPrevious(id);
+                T removed = store.remove(id);
+                if (removed != null) {
+                    changes.add(new PendingChange<>(JournalRecord.Operation.DELETE, removed));
+                }
+            }
+            recordChanges(changes);
         }
     }
 
     @Override
     public boolean existsById(ID id) {
-        return store.containsKey(id);
+        synchronized (mutationLock) {
+            return store.containsKey(id);
+        }
     }
 
     private void load() {
         if (!Files.exists(file)) {
             return;
         }
-        try {
-            List<T> items = mapper.readValue(file.toFile(), typeReference);
-            store.clear();
-            for (T item : items) {
+        int count = 0;
+        try (JsonParser parser = mapper.getFactory().createParser(file.toFile())) {
+            long totalBytes = Files.size(file);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new StorageException("Expected a JSON array in " + getName());
+            }
+            ObjectReader reader = mapper.readerFor(elementType);
+            while (nextRecordToken(parser, count) != JsonToken.END_ARRAY) {
+                T item = readRecord(reader, parser, count);
                 store.put(item.getId(), item);
+                count++;
+                if (count % PROGRESS_INTERVAL == 0) {
+                    long offset = parser.getCurrentLocation().getByteOffset();
+                    LOGGER.info(String.format("Loaded %d records from %s (%d%%)", count, getName(),
+                            totalBytes == 0 ? 100 : offset * 100 / totalBytes));
+                }
+            }
+            if (parser.nextToken() != null) {
+                JsonLocation location = parser.getCurrentLocation();
+                throw new StorageException(String.format(
+                        "Unexpected content after records in %s at line %d, column %d",
+                        getName(), location.getLineNr(), location.getColumnNr()));
+            }
+        } catch (IOException | RuntimeException ex) {
+            store.clear();
+            if (ex instanceof StorageException) {
+                throw (StorageException) ex;
             }
-        } catch (IOException ex) {
             throw new StorageException("Failed to load " + file.getFileName(), ex);
         }
     }
 
+    private JsonToken nextRecordToken(JsonParser parser, int index) {
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw malformedRecord(parser, index, null);
+            }
+            return token;
+        } catch (IOException ex) {
+            throw malformedRecord(parser, index, ex);
+        }
+    }
+
+    private T readRecord(ObjectReader reader, JsonParser parser, int index) {
+        try {
+            T item = reader.readValue(parser);
+            if (item == null) {
+                throw malformedRecord(parser, index, null);
+            }
+            return item;
+        } catch (IOException ex) {
+            throw malformedRecord(parser, index, ex);
+        }
+    }
+
+    private StorageException malformedRecord(JsonParser parser, int index, IOException cause) {
+        JsonLocation location = parser.getCurrentLocation();
+        return new StorageException(String.format("Malformed record %d in %s at line %d, column %d",
+                index + 1, getName(), location.getLineNr(), location.getColumnNr()), cause);
+    }
+
+    private void recordChange(JournalRecord.Operation operation, T entity) {
+        recordChanges(List.of(new PendingChange<>(operation, entity)));
+    }
+
+    private void recordChanges(List<PendingChange<T>> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        dirty = true;
+        if (journal == null) {
+            if (!autoPersist) {
+                return;
+            }
+            if (flusher != null) {
+                notifyFlusher(changes.size());
+            } else {
+                persist();
+            }
+            return;
+        }
+        if (autoPersist && flusher == null) {
+            List<JournalRecord> records = new ArrayList<>();
+            for (PendingChange<T> change : changes) {
+                records.add(toRecord(change));
+            }
+            journal.append(records);
+            return;
+        }
+        pendingChanges.addAll(changes);
+        if (autoPersist) {
+            notifyFlusher(changes.size());
+        }
+    }
+
+    private void notifyFlusher(int mutations) {
+        for (int i = 0; i < mutations; i++) {
+            flusher.mutated();
+        }
+    }
+
+    private JournalRecord toRecord(PendingChange<T> change) {
+        return new JournalRecord(getName(), change.operation, mapper.valueToTree(change.entity));
+    }
+
     private void persist() {
         Path tempFile = null;
         try {
@@ -89,6 +283,7 @@ public class JsonFileRepository<T extends Identifiable<ID>, ID> implements Repos
             tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
             writeTo(tempFile);
             moveReplacing(tempFile, file);
+            dirty = false;
         } catch (IOException ex) {
             if (tempFile != null) {
                 try {
@@ -105,17 +300,102 @@ public class JsonFileRepository<T extends Identifiable<ID>, ID> implements Repos
         return file;
     }
 
+    int size() {
+        return store.size();
+    }
+
+    String getName() {
+        return file.getFileName().toString();
+    }
+
+    void setMutationLock(Object mutationLock) {
+        this.mutationLock = mutationLock;
+    }
+
+    void setJournal(StorageJournal journal) {
+        this.journal = journal;
+    }
+
+    void setFlusher(GroupCommitFlusher flusher) {
+        this.flusher = flusher;
+    }
+
+    List<JournalRecord> pendingRecords() {
+        List<JournalRecord> records = new ArrayList<>();
+        for (PendingChange<T> change : pendingChanges) {
+            records.add(toRecord(change));
+        }
+        return records;
+    }
+
+    void clearPendingChanges() {
+        pendingChanges.clear();
+        pendingMark = 0;
+    }
+
+    void discardPendingChanges() {
+        if (pendingMark < pendingChanges.size()) {
+            pendingChanges.subList(pendingMark, pendingChanges.size()).clear();
+        }
+        pendingMark = 0;
+    }
+
+    void applyJournalRecord(JournalRecord record) {
+        try {
+            T entity = mapper.readerFor(elementType).readValue(record.getEntity());
+            if (record.getOperation() == JournalRecord.Operation.DELETE) {
+                store.remove(entity.getId());
+            } else {
+                store.put(entity.getId(), entity);
+            }
+            dirty = true;
+        } catch (IOException ex) {
+            throw new StorageException("Failed to replay journal record for " + getName(), ex);
+        }
+    }
+
     void setAutoPersist(boolean autoPersist) {
         this.autoPersist = autoPersist;
     }
 
-    Map<ID, T> snapshot() {
-        return new LinkedHashMap<>(store);
+    boolean isDirty() {
+        return dirty;
+    }
+
+    void setDirty(boolean dirty) {
+        this.dirty = dirty;
     }
 
-    void restoreSnapshot(Map<ID, T> snapshot) {
-        store.clear();
-        store.putAll(snapshot);
+    void beginUndoLog() {
+        undoLog = new HashMap<>();
+        dirtyBeforeUndoLog = dirty;
+        pendingMark = pendingChanges.size();
+    }
+
+    void rollbackUndoLog() {
+        if (undoLog == null) {
+            return;
+        }
+        for (Map.Entry<ID, Previous<T>> entry : undoLog.entrySet()) {
+            Previous<T> previous = entry.getValue();
+            if (previous.entity == null) {
+                store.remove(entry.getKey());
+            } else {
+                store.restore(entry.getKey(), previous.position, previous.entity);
+            }
+        }
+        dirty = dirtyBeforeUndoLog;
+        clearUndoLog();
+    }
+
+    void clearUndoLog() {
+        undoLog = null;
+    }
+
+    private void rememberPrevious(ID id) {
+        if (undoLog != null && !undoLog.containsKey(id)) {
+            undoLog.put(id, new Previous<>(store.get(id), store.positionOf(id)));
+        }
     }
 
     void writeTo(Path target) {
@@ -136,4 +416,24 @@ public class JsonFileRepository<T extends Identifiable<ID>, ID> implements Repos
             Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
         }
     }
+
+    private static class PendingChange<T> {
+        private final JournalRecord.Operation operation;
+        private final T entity;
+
+        private PendingChange(JournalRecord.Operation operation, T entity) {
+            this.operation = operation;
+            this.entity = entity;
+        }
+    }
+
+    private static class Previous<T> {
+        private final T entity;
+        private final long position;
+
+        private Previous(T entity, long position) {
+            this.entity = entity;
+            this.position = position;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package lms.storage.file;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+class OrderedStore<ID, T> {
+    static final long ABSENT = -1;
+    private final Map<ID, Long> positions = new HashMap<>();
+    private final NavigableMap<Long, T> ordered = new TreeMap<>();
+    private long nextPosition;
+
+    T get(ID id) {
+        Long position = positions.get(id);
+        return position == null ? null : ordered.get(position);
+    }
+
+    boolean containsKey(ID id) {
+        return positions.containsKey(id);
+    }
+
+    long positionOf(ID id) {
+        Long position = positions.get(id);
+        return position == null ? ABSENT : position;
+    }
+
+    void put(ID id, T entity) {
+        Long position = positions.get(id);
+        if (position == null) {
+            position = nextPosition++;
+            positions.put(id, position);
+        }
+        ordered.put(position, entity);
+    }
+
+    void restore(ID id, long position, T entity) {
+        Long current = positions.put(id, position);
+        if (current != null && current != position) {
+            ordered.remove(current);
+        }
+        ordered.put(position, entity);
+    }
+
+    T remove(ID id) {
+        Long position = positions.remove(id);
+        return position == null ? null : ordered.remove(position);
+    }
+
+    Collection<T> values() {
+        return Collections.unmodifiableCollection(ordered.values());
+    }
+
+    int size() {
+        return positions.size();
+    }
+
+    void clear() {
+        positions.clear();
+        ordered.clear();
+    }
+}
@@ -0,0 +1,155 @@
+package lms.storage.file;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import lms.exception.StorageException;
+
+class StorageJournal implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(StorageJournal.class.getName());
+    private static final TypeReference<List<JournalRecord>> ENTRY_TYPE = new TypeReference<List<JournalRecord>>() { };
+    private final Path file;
+    private final long compactThresholdBytes;
+    private final Runnable compactionTrigger;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private FileChannel channel;
+
+    StorageJournal(Path file, long compactThresholdBytes, Runnable compactionTrigger) {
+        this.file = file;
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.compactionTrigger = compactionTrigger;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    void append(List<JournalRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        long size;
+        synchronized (this) {
+            long start = -1;
+            try {
+                byte[] line = (mapper.writeValueAsString(records) + "\n").getBytes(StandardCharsets.UTF_8);
+                FileChannel target = openChannel();
+                start = target.size();
+                ByteBuffer buffer = ByteBuffer.wrap(line);
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                target.force(false);
+                size = target.size();
+            } catch (IOException ex) {
+                discardPartialAppend(start);
+                throw new StorageException("Failed to append to " + file.getFileName(), ex);
+            }
+        }
+        if (size >= compactThresholdBytes) {
+            compactionTrigger.run();
+        }
+    }
+
+    private void discardPartialAppend(long start) {
+        if (start < 0) {
+            return;
+        }
+        try {
+            channel.truncate(start);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Failed to discard partial entry in " + file.getFileName(), ex);
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        try {
+            return !Files.exists(file) || Files.size(file) == 0;
+        } catch (IOException ex) {
+            throw new StorageException("Failed to inspect " + file.getFileName(), ex);
+        }
+    }
+
+    synchronized void replay(Consumer<JournalRecord> consumer) {
+        if (!Files.exists(file)) {
+            return;
+        }
+        long validBytes = 0;
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while (line != null) {
+                lineNumber++;
+                String next = reader.readLine();
+                List<JournalRecord> records;
+                try {
+                    records = line.trim().isEmpty() ? List.of() : mapper.readValue(line, ENTRY_TYPE);
+                } catch (JsonProcessingException ex) {
+                    if (next != null) {
+                        throw new StorageException("Corrupt entry at line " + lineNumber + " of " + file.getFileName(), ex);
+                    }
+                    LOGGER.log(Level.WARNING, "Discarding incomplete trailing entry in " + file.getFileName(), ex);
+                    break;
+                }
+                for (JournalRecord record : records) {
+                    consumer.accept(record);
+                }
+                validBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                line = next;
+            }
+        } catch (IOException ex) {
+            throw new StorageException("Failed to replay " + file.getFileName(), ex);
+        }
+        try {
+            if (Files.size(file) > validBytes) {
+                openChannel().truncate(validBytes);
+            }
+        } catch (IOException ex) {
+            throw new StorageException("Failed to truncate " + file.getFileName(), ex);
+        }
+    }
+
+    synchronized void reset() {
+        try {
+            openChannel().truncate(0);
+        } catch (IOException ex) {
+            throw new StorageException("Failed to reset " + file.getFileName(), ex);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Ignore close failures for the journal channel.
+        }
+        channel = null;
+    }
+
+    private FileChannel openChannel() throws IOException {
+        if (channel == null) {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+}
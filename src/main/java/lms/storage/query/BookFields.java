@@ -0,0 +1,16 @@
+package lms.storage.query;
+
+import lms.model.Book;
+
+public final class BookFields {
+    public static final Field<Book, String> ISBN = new Field<>("isbn", Book::getIsbn);
+    public static final Field<Book, String> BOOK_ID = new Field<>("bookId", Book::getBookId);
+    public static final Field<Book, String> TITLE = new Field<>("title", Book::getTitle);
+    public static final Field<Book, String> AUTHOR = new Field<>("author", Book::getAuthor);
+    public static final Field<Book, Integer> YEAR = new Field<>("year", Book::getYear);
+    public static final Field<Book, String> GENRE = new Field<>("genre", Book::getGenre);
+    public static final Field<Book, Integer> TOTAL_LOANS = new Field<>("totalLoans", Book::getTotalLoans);
+
+    private BookFields() {
+    }
+}
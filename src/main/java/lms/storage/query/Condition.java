@@ -0,0 +1,85 @@
+package lms.storage.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+public final class Condition<T> {
+    public enum Operator {
+        EQ,
+        EQ_IGNORE_CASE,
+        CONTAINS_IGNORE_CASE,
+        IN,
+        LT,
+        LE,
+        GT,
+        GE,
+        IS_NULL,
+        NOT_NULL
+    }
+
+    private final Field<T, ?> field;
+    private final Operator operator;
+    private final List<Object> values;
+
+    Condition(Field<T, ?> field, Operator operator, Collection<?> values) {
+        this.field = field;
+        this.operator = operator;
+        this.values = Collections.unmodifiableList(new ArrayList<>(values));
+    }
+
+    public Field<T, ?> getField() {
+        return field;
+    }
+
+    public Operator getOperator() {
+        return operator;
+    }
+
+    public Object getValue() {
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    public List<Object> getValues() {
+        return values;
+    }
+
+    public static String fold(Object value) {
+        return value.toString().toLowerCase(Locale.ROOT);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    boolean matches(T entity) {
+        Object actual = field.get(entity);
+        switch (operator) {
+            case IS_NULL:
+                return actual == null;
+            case NOT_NULL:
+                return actual != null;
+            case EQ:
+            case IN:
+                return actual != null && values.contains(actual);
+            case EQ_IGNORE_CASE:
+                return actual != null && fold(actual).equals(fold(getValue()));
+            case CONTAINS_IGNORE_CASE:
+                return actual != null && fold(actual).contains(fold(getValue()));
+            default:
+                if (actual == null) {
+                    return false;
+                }
+                int compared = ((Comparable) actual).compareTo(getValue());
+                switch (operator) {
+                    case LT:
+                        return compared < 0;
+                    case LE:
+                        return compared <= 0;
+                    case GT:
+                        return compared > 0;
+                    default:
+                        return compared >= 0;
+                }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package lms.storage.query;
+
+import lms.model.BookCopy;
+import lms.model.CopyStatus;
+
+public final class CopyFields {
+    public static final Field<BookCopy, String> COPY_ID = new Field<>("copyId", BookCopy::getCopyId);
+    public static final Field<BookCopy, String> ISBN = new Field<>("isbn", BookCopy::getIsbn);
+    public static final Field<BookCopy, CopyStatus> STATUS = new Field<>("status", BookCopy::getStatus);
+
+    private CopyFields() {
+    }
+}
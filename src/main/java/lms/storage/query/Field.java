@@ -0,0 +1,26 @@
+package lms.storage.query;
+
+import java.util.function.Function;
+
+public final class Field<T, V extends Comparable<? super V>> {
+    private final String name;
+    private final Function<T, V> getter;
+
+    public Field(String name, Function<T, V> getter) {
+        this.name = name;
+        this.getter = getter;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public V get(T entity) {
+        return getter.apply(entity);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,16 @@
+package lms.storage.query;
+
+import java.time.LocalDate;
+import lms.model.Loan;
+
+public final class LoanFields {
+    public static final Field<Loan, String> LOAN_ID = new Field<>("loanId", Loan::getLoanId);
+    public static final Field<Loan, String> COPY_ID = new Field<>("copyId", Loan::getCopyId);
+    public static final Field<Loan, String> MEMBER_ID = new Field<>("memberId", Loan::getMemberId);
+    public static final Field<Loan, LocalDate> LOAN_DATE = new Field<>("loanDate", Loan::getLoanDate);
+    public static final Field<Loan, LocalDate> DUE_DATE = new Field<>("dueDate", Loan::getDueDate);
+    public static final Field<Loan, LocalDate> RETURN_DATE = new Field<>("returnDate", Loan::getReturnDate);
+
+    private LoanFields() {
+    }
+}
@@ -0,0 +1,14 @@
+package lms.storage.query;
+
+import lms.model.Member;
+import lms.model.MemberType;
+
+public final class MemberFields {
+    public static final Field<Member, String> MEMBER_ID = new Field<>("memberId", Member::getMemberId);
+    public static final Field<Member, String> NAME = new Field<>("name", Member::getName);
+    public static final Field<Member, String> EMAIL = new Field<>("email", Member::getEmail);
+    public static final Field<Member, MemberType> TYPE = new Field<>("type", Member::getType);
+
+    private MemberFields() {
+    }
+}
@@ -0,0 +1,19 @@
+package lms.storage.query;
+
+public final class Ordering<T> {
+    private final Field<T, ?> field;
+    private final boolean descending;
+
+    Ordering(Field<T, ?> field, boolean descending) {
+        this.field = field;
+        this.descending = descending;
+    }
+
+    public Field<T, ?> getField() {
+        return field;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+}
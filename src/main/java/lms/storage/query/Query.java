@@ -0,0 +1,217 @@
+package lms.storage.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public final class Query<T> {
+    private final List<Condition<T>> conditions = new ArrayList<>();
+    private final List<Ordering<T>> orderings = new ArrayList<>();
+    private int limit = -1;
+
+    public static <T> Query<T> all() {
+        return new Query<>();
+    }
+
+    public <V extends Comparable<? super V>> Query<T> eq(Field<T, V> field, V value) {
+        if (value == null) {
+            return isNull(field);
+        }
+        return add(field, Condition.Operator.EQ, List.of(value));
+    }
+
+    public Query<T> eqIgnoreCase(Field<T, String> field, String value) {
+        return add(field, Condition.Operator.EQ_IGNORE_CASE, List.of(value));
+    }
+
+    public Query<T> containsIgnoreCase(Field<T, String> field, String value) {
+        return add(field, Condition.Operator.CONTAINS_IGNORE_CASE, List.of(value));
+    }
+
+    public <V extends Comparable<? super V>> Query<T> in(Field<T, V> field, Collection<? extends V> values) {
+        return add(field, Condition.Operator.IN, values);
+    }
+
+    public <V extends Comparable<? super V>> Query<T> lessThan(Field<T, V> field, V value) {
+        return add(field, Condition.Operator.LT, List.of(value));
+    }
+
+    public <V extends Comparable<? super V>> Query<T> atMost(Field<T, V> field, V value) {
+        return add(field, Condition.Operator.LE, List.of(value));
+    }
+
+    public <V extends Comparable<? super V>> Query<T> greaterThan(Field<T, V> field, V value) {
+        return add(field, Condition.Operator.GT, List.of(value));
+    }
+
+    public <V extends Comparable<? super V>> Query<T> atLeast(Field<T, V> field, V value) {
+        return add(field, Condition.Operator.GE, List.of(value));
+    }
+
+    public Query<T> isNull(Field<T, ?> field) {
+        return add(field, Condition.Operator.IS_NULL, List.of());
+    }
+
+    public Query<T> isNotNull(Field<T, ?> field) {
+        return add(field, Condition.Operator.NOT_NULL, List.of());
+    }
+
+    public Query<T> orderBy(Field<T, ?> field) {
+        orderings.add(new Ordering<>(field, false));
+        return this;
+    }
+
+    public Query<T> orderByDescending(Field<T, ?> field) {
+        orderings.add(new Ordering<>(field, true));
+        return this;
+    }
+
+    public <V extends Comparable<? super V>> Query<T> after(Field<T, V> key, V lastKey) {
+        if (lastKey != null) {
+            greaterThan(key, lastKey);
+        }
+        return orderBy(key);
+    }
+
+    public Query<T> limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must be non-negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public Query<T> copy() {
+        Query<T> copy = new Query<>();
+        copy.conditions.addAll(conditions);
+        copy.orderings.addAll(orderings);
+        copy.limit = limit;
+        return copy;
+    }
+
+    public List<Condition<T>> getConditions() {
+        return Collections.unmodifiableList(conditions);
+    }
+
+    public List<Ordering<T>> getOrderings() {
+        return Collections.unmodifiableList(orderings);
+    }
+
+    public boolean hasLimit() {
+        return limit >= 0;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean matches(T entity) {
+        for (Condition<T> condition : conditions) {
+            if (!condition.matches(entity)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Comparator<T> comparator() {
+        Comparator<T> result = null;
+        for (Ordering<T> ordering : orderings) {
+            Comparator<T> next = compareBy(ordering.getField());
+            if (ordering.isDescending()) {
+                next = next.reversed();
+            }
+            result = result == null ? next : result.thenComparing(next);
+        }
+        return result;
+    }
+
+    public List<T> apply(Stream<T> entities) {
+        Stream<T> stream = entities.filter(this::matches);
+        Comparator<T> comparator = comparator();
+        if (comparator != null && hasLimit()) {
+            return firstInOrder(stream, comparator);
+        }
+        if (comparator != null) {
+            stream = stream.sorted(comparator);
+        }
+        if (hasLimit()) {
+            stream = stream.limit(limit);
+        }
+        return stream.collect(Collectors.toList());
+    }
+
+    public void forEach(Stream<T> entities, Consumer<? super T> action) {
+        if (!orderings.isEmpty()) {
+            apply(entities).forEach(action);
+            return;
+        }
+        Stream<T> stream = entities.filter(this::matches);
+        if (hasLimit()) {
+            stream = stream.limit(limit);
+        }
+        stream.forEach(action);
+    }
+
+    public long count(Stream<T> entities) {
+        return entities.filter(this::matches).count();
+    }
+
+    private List<T> firstInOrder(Stream<T> stream, Comparator<T> comparator) {
+        List<T> result = new ArrayList<>();
+        if (limit == 0) {
+            return result;
+        }
+        Comparator<Ranked<T>> order = Comparator.<Ranked<T>, T>comparing(ranked -> ranked.item, comparator)
+                .thenComparingLong(ranked -> ranked.sequence);
+        PriorityQueue<Ranked<T>> kept = new PriorityQueue<>(limit, order.reversed());
+        long[] sequence = {0};
+        stream.forEach(entity -> {
+            Ranked<T> ranked = new Ranked<>(entity, sequence[0]++);
+            if (kept.size() < limit) {
+                kept.add(ranked);
+            } else if (order.compare(ranked, kept.peek()) < 0) {
+                kept.poll();
+                kept.add(ranked);
+            }
+        });
+        List<Ranked<T>> sorted = new ArrayList<>(kept);
+        sorted.sort(order);
+        for (Ranked<T> ranked : sorted) {
+            result.add(ranked.item);
+        }
+        return result;
+    }
+
+    private Query<T> add(Field<T, ?> field, Condition.Operator operator, Collection<?> values) {
+        for (Object value : values) {
+            if (value == null) {
+                throw new IllegalArgumentException("Null comparison value for " + field.getName());
+            }
+        }
+        conditions.add(new Condition<>(field, operator, values));
+        return this;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Comparator<T> compareBy(Field<T, ?> field) {
+        return Comparator.comparing(entity -> (Comparable) field.get(entity),
+                Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+
+    private static final class Ranked<T> {
+        private final T item;
+        private final long sequence;
+
+        private Ranked(T item, long sequence) {
+            this.item = item;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package lms.storage.query;
+
+import java.time.LocalDate;
+import lms.model.Reservation;
+import lms.model.ReservationStatus;
+
+public final class ReservationFields {
+    public static final Field<Reservation, String> RESERVATION_ID =
+            new Field<>("reservationId", Reservation::getReservationId);
+    public static final Field<Reservation, String> ISBN = new Field<>("isbn", Reservation::getIsbn);
+    public static final Field<Reservation, String> MEMBER_ID = new Field<>("memberId", Reservation::getMemberId);
+    public static final Field<Reservation, LocalDate> CREATED_AT = new Field<>("createdAt", Reservation::getCreatedAt);
+    public static final Field<Reservation, ReservationStatus> STATUS = new Field<>("status", Reservation::getStatus);
+
+    private ReservationFields() {
+    }
+}
@@ -5,13 +5,33 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import lms.exception.StorageException;
 import lms.model.Book;
 import lms.storage.Repository;
+import lms.storage.query.BookFields;
+import lms.storage.query.Query;
 
 public class SqliteBookRepository implements Repository<Book, String> {
+    private static final Map<String, String> COLUMNS = Map.of(
+            "isbn", "isbn",
+            "bookId", "book_id",
+            "title", "title",
+            "author", "author",
+            "year", "year",
+            "genre", "genre",
+            "totalLoans", "total_loans"
+    );
+    private static final String SAVE_SQL =
+            "INSERT INTO books(isbn, book_id, title, author, year, genre, total_loans) VALUES(?,?,?,?,?,?,?) " +
+            "ON CONFLICT(isbn) DO UPDATE SET book_id = excluded.book_id, title = excluded.title, " +
+            "author = excluded.author, year = excluded.year, genre = excluded.genre, " +
+            "total_loans = excluded.total_loans";
+    private static final String DELETE_SQL = "DELETE FROM books WHERE isbn = ?";
     private final SqliteStorage storage;
 
     public SqliteBookRepository(SqliteStorage storage) {
@@ -20,21 +40,12 @@ public class SqliteBookRepository implements Repository<Book, String> {
 
     @Override
     public void save(Book book) {
-        String sql = "INSERT OR REPLACE INTO books(isbn, book_id, title, author, year, genre, total_loans) " +
-                "VALUES(?,?,?,?,?,?,?)";
         Connection connection = null;
         try {
             connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, book.getIsbn());
-                statement.setString(2, book.getBookId());
-                statement.setString(3, book.getTitle());
-                statement.setString(4, book.getAuthor());
-                statement.setInt(5, book.getYear());
-                statement.setString(6, book.getGenre());
-                statement.setInt(7, book.getTotalLoans());
-                statement.executeUpdate();
-            }
+            PreparedStatement statement = storage.prepare(connection, SAVE_SQL);
+            bind(statement, book);
+            statement.executeUpdate();
         } catch (SQLException ex) {
             throw new StorageException("Failed to save book " + book.getIsbn(), ex);
         } finally {
@@ -47,13 +58,12 @@ public class SqliteBookRepository implements Repository<Book, String> {
         String sql = "SELECT isbn, book_id, title, author, year, genre, total_loans FROM books WHERE isbn = ?";
         Connection connection = null;
         try {
-            connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, isbn);
-                try (ResultSet rs = statement.executeQuery()) {
-                    if (rs.next()) {
-                        return Optional.of(mapRow(rs));
-                    }
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            statement.setString(1, isbn);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapRow(rs));
                 }
             }
         } catch (SQLException ex) {
@@ -64,15 +74,19 @@ public class SqliteBookRepository implements Repository<Book, String> {
         return Optional.empty();
     }
 
+    @Override
+    public Map<String, Book> findAllById(Collection<String> ids) {
+        return SqliteQueries.findAllById(ids, chunk -> findBy(Query.<Book>all().in(BookFields.ISBN, chunk)));
+    }
+
     @Override
     public List<Book> findAll() {
         String sql = "SELECT isbn, book_id, title, author, year, genre, total_loans FROM books";
         List<Book> books = new ArrayList<>();
         Connection connection = null;
         try {
-            connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql);
-                 ResultSet rs = statement.executeQuery()) {
+            connection = storage.connectForRead();
+            try (ResultSet rs = storage.prepare(connection, sql).executeQuery()) {
                 while (rs.next()) {
                     books.add(mapRow(rs));
                 }
@@ -85,16 +99,31 @@ public class SqliteBookRepository implements Repository<Book, String> {
         return books;
     }
 
+    @Override
+    public void forEach(Consumer<? super Book> action) {
+        forEach(Query.all(), action);
+    }
+
+    @Override
+    public void forEach(Query<Book> query, Consumer<? super Book> action) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT isbn, book_id, title, author, year, genre, total_loans FROM books" +
+                SqliteQueries.toSql(query, COLUMNS, params);
+        try {
+            storage.forEachRow(sql, params, this::mapRow, action);
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to iterate books", ex);
+        }
+    }
+
     @Override
     public void deleteById(String isbn) {
-        String sql = "DELETE FROM books WHERE isbn = ?";
         Connection connection = null;
         try {
             connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, isbn);
-                statement.executeUpdate();
-            }
+            PreparedStatement statement = storage.prepare(connection, DELETE_SQL);
+            statement.setString(1, isbn);
+            statement.executeUpdate();
         } catch (SQLException ex) {
             throw new StorageException("Failed to delete book " + isbn, ex);
         } finally {
@@ -102,17 +131,62 @@ public class SqliteBookRepository implements Repository<Book, String> {
         }
     }
 
+    @Override
+    public void saveAll(Collection<Book> books) {
+        if (books.isEmpty()) {
+            return;
+        }
+        storage.runInTransaction(() -> {
+            Connection connection = null;
+            try {
+                connection = storage.connect();
+                PreparedStatement statement = storage.prepare(connection, SAVE_SQL);
+                for (Book book : books) {
+                    bind(statement, book);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } catch (SQLException ex) {
+                throw new StorageException("Failed to save " + books.size() + " books", ex);
+            } finally {
+                storage.closeConnection(connection);
+            }
+        });
+    }
+
+    @Override
+    public void deleteAllById(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        storage.runInTransaction(() -> {
+            Connection connection = null;
+            try {
+                connection = storage.connect();
+                PreparedStatement statement = storage.prepare(connection, DELETE_SQL);
+                for (String id : ids) {
+                    statement.setString(1, id);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } catch (SQLException ex) {
+                throw new StorageException("Failed to delete " + ids.size() + " books", ex);
+            } finally {
+                storage.closeConnection(connection);
+            }
+        });
+    }
+
     @Override
     public boolean existsById(String isbn) {
         String sql = "SELECT 1 FROM books WHERE isbn = ?";
         Connection connection = null;
         try {
-            connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, isbn);
-                try (ResultSet rs = statement.executeQuery()) {
-                    return rs.next();
-                }
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            statement.setString(1, isbn);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
             }
         } catch (SQLException ex) {
             throw new StorageException("Failed to check book " + isbn, ex);
@@ -121,6 +195,88 @@ public class SqliteBookRepository implements Repository<Book, String> {
         }
     }
 
+    @Override
+    public List<Book> findBy(Query<Book> query) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT isbn, book_id, title, author, year, genre, total_loans FROM books" +
+                SqliteQueries.toSql(query, COLUMNS, params);
+        List<Book> books = new ArrayList<>();
+        Connection connection = null;
+        try {
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            SqliteQueries.bind(statement, params);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    books.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to query books", ex);
+        } finally {
+            storage.closeConnection(connection);
+        }
+        return books;
+    }
+
+    @Override
+    public Optional<List<Book>> findByText(String text, int limit) {
+        String match = SqliteQueries.trigramMatch(text);
+        if (!storage.hasSearchIndexes() || match == null) {
+            return Optional.empty();
+        }
+        String sql = "SELECT b.isbn, b.book_id, b.title, b.author, b.year, b.genre, b.total_loans " +
+                "FROM books_fts JOIN books b ON b.rowid = books_fts.rowid " +
+                "WHERE books_fts MATCH ? ORDER BY b.rowid LIMIT ?";
+        List<Book> books = new ArrayList<>();
+        Connection connection = null;
+        try {
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            statement.setString(1, match);
+            statement.setInt(2, limit);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    books.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to search books", ex);
+        } finally {
+            storage.closeConnection(connection);
+        }
+        return Optional.of(books);
+    }
+
+    @Override
+    public long count(Query<Book> query) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM books" + SqliteQueries.whereClause(query, COLUMNS, params);
+        Connection connection = null;
+        try {
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            SqliteQueries.bind(statement, params);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to count books", ex);
+        } finally {
+            storage.closeConnection(connection);
+        }
+    }
+
+    private void bind(PreparedStatement statement, Book book) throws SQLException {
+        statement.setString(1, book.getIsbn());
+        statement.setString(2, book.getBookId());
+        statement.setString(3, book.getTitle());
+        statement.setString(4, book.getAuthor());
+        statement.setInt(5, book.getYear());
+        statement.setString(6, book.getGenre());
+        statement.setInt(7, book.getTotalLoans());
+    }
+
     private Book mapRow(ResultSet rs) throws SQLException {
         Book book = new Book();
         book.setIsbn(rs.getString("isbn"));
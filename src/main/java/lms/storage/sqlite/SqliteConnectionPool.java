@@ -0,0 +1,245 @@
+package lms.storage.sqlite;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import lms.storage.query.Condition;
+import org.sqlite.Function;
+
+class SqliteConnectionPool implements AutoCloseable {
+    static final String LOWER_FUNCTION = "lms_lower";
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 30;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+    private static final Set<String> JOURNAL_MODES = Set.of("DELETE", "TRUNCATE", "PERSIST", "MEMORY", "WAL", "OFF");
+    private static final Set<String> SYNCHRONOUS_MODES = Set.of("OFF", "NORMAL", "FULL", "EXTRA");
+    private static final Set<String> TEMP_STORES = Set.of("DEFAULT", "FILE", "MEMORY");
+    private final String url;
+    private final int readerCount;
+    private final int statementCacheSize;
+    private final List<String> pragmas;
+    private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final ReentrantLock writerLock = new ReentrantLock();
+    private final BlockingQueue<Connection> idleReaders;
+    private final List<Connection> allReaders = new ArrayList<>();
+    private Connection writer;
+    private boolean closed;
+
+    SqliteConnectionPool(String url, SqliteSettings settings) throws SQLException {
+        this.url = url;
+        this.readerCount = Math.max(0, settings.getReaderConnections());
+        this.statementCacheSize = settings.getStatementCacheSize();
+        this.pragmas = buildPragmas(settings);
+        this.idleReaders = new ArrayBlockingQueue<>(Math.max(1, this.readerCount));
+    }
+
+    Connection acquireWriter() throws SQLException {
+        try {
+            if (!writerLock.tryLock(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new SQLException("Timed out waiting for the SQLite writer connection");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the SQLite writer connection", ex);
+        }
+        try {
+            ensureOpen();
+            if (!isUsable(writer)) {
+                closeQuietly(writer);
+                writer = openConnection();
+            }
+            return writer;
+        } catch (SQLException | RuntimeException ex) {
+            writerLock.unlock();
+            throw ex;
+        }
+    }
+
+    Connection acquireReader() throws SQLException {
+        if (readerCount == 0) {
+            return acquireWriter();
+        }
+        Connection reader = idleReaders.poll();
+        if (reader == null) {
+            reader = openReaderIfBelowLimit();
+        }
+        if (reader == null) {
+            try {
+                reader = idleReaders.poll(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a SQLite reader connection", ex);
+            }
+            if (reader == null) {
+                throw new SQLException("Timed out waiting for a SQLite reader connection");
+            }
+        }
+        if (!isUsable(reader)) {
+            reader = replaceReader(reader);
+        }
+        return reader;
+    }
+
+    PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        StatementCache cache = statementCaches.get(connection);
+        if (cache == null) {
+            throw new SQLException("Connection is not managed by this pool");
+        }
+        return cache.prepare(sql);
+    }
+
+    long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    void release(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        if (connection == writer && writerLock.isHeldByCurrentThread()) {
+            writerLock.unlock();
+            return;
+        }
+        synchronized (this) {
+            if (closed) {
+                closeQuietly(connection);
+                return;
+            }
+        }
+        idleReaders.offer(connection);
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Connection reader : allReaders) {
+            closeQuietly(reader);
+        }
+        allReaders.clear();
+        idleReaders.clear();
+        if (writerLock.tryLock()) {
+            try {
+                closeQuietly(writer);
+                writer = null;
+            } finally {
+                writerLock.unlock();
+            }
+        }
+    }
+
+    private synchronized Connection openReaderIfBelowLimit() throws SQLException {
+        ensureOpen();
+        if (allReaders.size() >= readerCount) {
+            return null;
+        }
+        Connection reader = openConnection();
+        allReaders.add(reader);
+        return reader;
+    }
+
+    private synchronized Connection replaceReader(Connection broken) throws SQLException {
+        allReaders.remove(broken);
+        closeQuietly(broken);
+        ensureOpen();
+        Connection reader = openConnection();
+        allReaders.add(reader);
+        return reader;
+    }
+
+    private synchronized void ensureOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("SQLite connection pool is closed");
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        try (Statement statement = connection.createStatement()) {
+            for (String pragma : pragmas) {
+                statement.execute(pragma);
+            }
+            Function.create(connection, LOWER_FUNCTION, new LowerFunction(), 1, Function.FLAG_DETERMINISTIC);
+        } catch (SQLException ex) {
+            connection.close();
+            throw ex;
+        }
+        statementCaches.put(connection, new StatementCache(connection, statementCacheSize,
+                statementCacheHits, statementCacheMisses));
+        return connection;
+    }
+
+    private static List<String> buildPragmas(SqliteSettings settings) throws SQLException {
+        List<String> result = new ArrayList<>();
+        result.add("PRAGMA busy_timeout = " + Math.max(0, settings.getBusyTimeoutMillis()));
+        result.add("PRAGMA journal_mode = " + checkMode("journal_mode", settings.getJournalMode(), JOURNAL_MODES));
+        result.add("PRAGMA synchronous = " + checkMode("synchronous", settings.getSynchronous(), SYNCHRONOUS_MODES));
+        result.add("PRAGMA cache_size = " + settings.getCacheSize());
+        result.add("PRAGMA mmap_size = " + Math.max(0, settings.getMmapSize()));
+        result.add("PRAGMA temp_store = " + checkMode("temp_store", settings.getTempStore(), TEMP_STORES));
+        return result;
+    }
+
+    private static String checkMode(String pragma, String value, Set<String> allowed) throws SQLException {
+        String mode = value == null ? "" : value.trim().toUpperCase(Locale.ROOT);
+        if (!allowed.contains(mode)) {
+            throw new SQLException("Unsupported " + pragma + " value: " + value);
+        }
+        return mode;
+    }
+
+    private boolean isUsable(Connection connection) {
+        if (connection == null) {
+            return false;
+        }
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        StatementCache cache = statementCaches.remove(connection);
+        if (cache != null) {
+            cache.close();
+        }
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // Ignore close failures for pooled connections.
+        }
+    }
+
+    private static final class LowerFunction extends Function {
+        @Override
+        protected void xFunc() throws SQLException {
+            String value = value_text(0);
+            if (value == null) {
+                result();
+            } else {
+                result(Condition.fold(value));
+            }
+        }
+    }
+}
@@ -5,14 +5,26 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import lms.exception.StorageException;
 import lms.model.BookCopy;
 import lms.model.CopyStatus;
 import lms.storage.Repository;
+import lms.storage.query.CopyFields;
+import lms.storage.query.Query;
 
 public class SqliteCopyRepository implements Repository<BookCopy, String> {
+    private static final Map<String, String> COLUMNS = Map.of(
+            "copyId", "copy_id",
+            "isbn", "isbn",
+            "status", "status"
+    );
+    private static final String SAVE_SQL = "INSERT OR REPLACE INTO copies(copy_id, isbn, status) VALUES(?,?,?)";
+    private static final String DELETE_SQL = "DELETE FROM copies WHERE copy_id = ?";
     private final SqliteStorage storage;
 
     public SqliteCopyRepository(SqliteStorage storage) {
@@ -21,16 +33,12 @@ public class SqliteCopyRepository implements Repository<BookCopy, String> {
 
     @Override
     public void save(BookCopy copy) {
-        String sql = "INSERT OR REPLACE INTO copies(copy_id, isbn, status) VALUES(?,?,?)";
         Connection connection = null;
         try {
             connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, copy.getCopyId());
-                statement.setString(2, copy.getIsbn());
-                statement.setString(3, copy.getStatus().name());
-                statement.executeUpdate();
-            }
+            PreparedStatement statement = storage.prepare(connection, SAVE_SQL);
+            bind(statement, copy);
+            statement.executeUpdate();
         } catch (SQLException ex) {
             throw new StorageException("Failed to save copy " + copy.getCopyId(), ex);
         } finally {
@@ -43,13 +51,12 @@ public class SqliteCopyRepository implements Repository<BookCopy, String> {
         String sql = "SELECT copy_id, isbn, status FROM copies WHERE copy_id = ?";
         Connection connection = null;
         try {
-            connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, id);
-                try (ResultSet rs = statement.executeQuery()) {
-                    if (rs.next()) {
-                        return Optional.of(mapRow(rs));
-                    }
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            statement.setString(1, id);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapRow(rs));
                 }
             }
         } catch (SQLException ex) {
@@ -60,15 +67,19 @@ public class SqliteCopyRepository implements Repository<BookCopy, String> {
         return Optional.empty();
     }
 
+    @Override
+    public Map<String, BookCopy> findAllById(Collection<String> ids) {
+        return SqliteQueries.findAllById(ids, chunk -> findBy(Query.<BookCopy>all().in(CopyFields.COPY_ID, chunk)));
+    }
+
     @Override
     public List<BookCopy> findAll() {
         String sql = "SELECT copy_id, isbn, status FROM copies";
         List<BookCopy> copies = new ArrayList<>();
         Connection connection = null;
         try {
-            connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql);
-                 ResultSet rs = statement.executeQuery()) {
+            connection = storage.connectForRead();
+            try (ResultSet rs = storage.prepare(connection, sql).executeQuery()) {
                 while (rs.next()) {
                     copies.add(mapRow(rs));
                 }
@@ -81,16 +92,31 @@ public class SqliteCopyRepository implements Repository<BookCopy, String> {
         return copies;
     }
 
+    @Override
+    public void forEach(Consumer<? super BookCopy> action) {
+        forEach(Query.all(), action);
+    }
+
+    @Override
+    public void forEach(Query<BookCopy> query, Consumer<? super BookCopy> action) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT copy_id, isbn, status FROM copies" +
+                SqliteQueries.toSql(query, COLUMNS, params);
+        try {
+            storage.forEachRow(sql, params, this::mapRow, action);
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to iterate copies", ex);
+        }
+    }
+
     @Override
     public void deleteById(String id) {
-        String sql = "DELETE FROM copies WHERE copy_id = ?";
         Connection connection = null;
         try {
             connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, id);
-                statement.executeUpdate();
-            }
+            PreparedStatement statement = storage.prepare(connection, DELETE_SQL);
+            statement.setString(1, id);
+            statement.executeUpdate();
         } catch (SQLException ex) {
             throw new StorageException("Failed to delete copy " + id, ex);
         } finally {
@@ -98,17 +124,62 @@ public class SqliteCopyRepository implements Repository<BookCopy, String> {
         }
     }
 
+    @Override
+    public void saveAll(Collection<BookCopy> copies) {
+        if (copies.isEmpty()) {
+            return;
+        }
+        storage.runInTransaction(() -> {
+            Connection connection = null;
+            try {
+                connection = storage.connect();
+                PreparedStatement statement = storage.prepare(connection, SAVE_SQL);
+                for (BookCopy copy : copies) {
+                    bind(statement, copy);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } catch (SQLException ex) {
+                throw new StorageException("Failed to save " + copies.size() + " copies", ex);
+            } finally {
+                storage.closeConnection(connection);
+            }
+        });
+    }
+
+    @Override
+    public void deleteAllById(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        storage.runInTransaction(() -> {
+            Connection connection = null;
+            try {
+                connection = storage.connect();
+                PreparedStatement statement = storage.prepare(connection, DELETE_SQL);
+                for (String id : ids) {
+                    statement.setString(1, id);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } catch (SQLException ex) {
+                throw new StorageException("Failed to delete " + ids.size() + " copies", ex);
+            } finally {
+                storage.closeConnection(connection);
+            }
+        });
+    }
+
     @Override
     public boolean existsById(String id) {
         String sql = "SELECT 1 FROM copies WHERE copy_id = ?";
         Connection connection = null;
         try {
-            connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, id);
-                try (ResultSet rs = statement.executeQuery()) {
-                    return rs.next();
-                }
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            statement.setString(1, id);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
             }
         } catch (SQLException ex) {
             throw new StorageException("Failed to check copy " + id, ex);
@@ -117,6 +188,55 @@ public class SqliteCopyRepository implements Repository<BookCopy, String> {
         }
     }
 
+    @Override
+    public List<BookCopy> findBy(Query<BookCopy> query) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT copy_id, isbn, status FROM copies" +
+                SqliteQueries.toSql(query, COLUMNS, params);
+        List<BookCopy> copies = new ArrayList<>();
+        Connection connection = null;
+        try {
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            SqliteQueries.bind(statement, params);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    copies.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to query copies", ex);
+        } finally {
+            storage.closeConnection(connection);
+        }
+        return copies;
+    }
+
+    @Override
+    public long count(Query<BookCopy> query) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM copies" + SqliteQueries.whereClause(query, COLUMNS, params);
+        Connection connection = null;
+        try {
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            SqliteQueries.bind(statement, params);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to count copies", ex);
+        } finally {
+            storage.closeConnection(connection);
+        }
+    }
+
+    private void bind(PreparedStatement statement, BookCopy copy) throws SQLException {
+        statement.setString(1, copy.getCopyId());
+        statement.setString(2, copy.getIsbn());
+        statement.setString(3, copy.getStatus().name());
+    }
+
     private BookCopy mapRow(ResultSet rs) throws SQLException {
         BookCopy copy = new BookCopy();
         copy.setCopyId(rs.getString("copy_id"));
@@ -6,13 +6,30 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import lms.exception.StorageException;
 import lms.model.Loan;
 import lms.storage.Repository;
+import lms.storage.query.LoanFields;
+import lms.storage.query.Query;
 
 public class SqliteLoanRepository implements Repository<Loan, String> {
+    private static final Map<String, String> COLUMNS = Map.of(
+            "loanId", "loan_id",
+            "copyId", "copy_id",
+            "memberId", "member_id",
+            "loanDate", "loan_date",
+            "dueDate", "due_date",
+            "returnDate", "return_date"
+    );
+    private static final String SAVE_SQL =
+            "INSERT OR REPLACE INTO loans(loan_id, copy_id, member_id, loan_date, due_date, return_date) " +
+            "VALUES(?,?,?,?,?,?)";
+    private static final String DELETE_SQL = "DELETE FROM loans WHERE loan_id = ?";
     private final SqliteStorage storage;
 
     public SqliteLoanRepository(SqliteStorage storage) {
@@ -21,20 +38,12 @@ public class SqliteLoanRepository implements Repository<Loan, String> {
 
     @Override
     public void save(Loan loan) {
-        String sql = "INSERT OR REPLACE INTO loans(loan_id, copy_id, member_id, loan_date, due_date, return_date) " +
-                "VALUES(?,?,?,?,?,?)";
         Connection connection = null;
         try {
             connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, loan.getLoanId());
-                statement.setString(2, loan.getCopyId());
-                statement.setString(3, loan.getMemberId());
-                statement.setString(4, toText(loan.getLoanDate()));
-                statement.setString(5, toText(loan.getDueDate()));
-                statement.setString(6, toText(loan.getReturnDate()));
-                statement.executeUpdate();
-            }
+            PreparedStatement statement = storage.prepare(connection, SAVE_SQL);
+            bind(statement, loan);
+            statement.executeUpdate();
         } catch (SQLException ex) {
             throw new StorageException("Failed to save loan " + loan.getLoanId(), ex);
         } finally {
@@ -47,13 +56,12 @@ public class SqliteLoanRepository implements Repository<Loan, String> {
         String sql = "SELECT loan_id, copy_id, member_id, loan_date, due_date, return_date FROM loans WHERE loan_id = ?";
         Connection connection = null;
         try {
-            connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, id);
-                try (ResultSet rs = statement.executeQuery()) {
-                    if (rs.next()) {
-                        return Optional.of(mapRow(rs));
-                    }
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            statement.setString(1, id);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapRow(rs));
                 }
             }
         } catch (SQLException ex) {
@@ -64,15 +72,19 @@ public class SqliteLoanRepository implements Repository<Loan, String> {
         return Optional.empty();
     }
 
+    @Override
+    public Map<String, Loan> findAllById(Collection<String> ids) {
+        return SqliteQueries.findAllById(ids, chunk -> findBy(Query.<Loan>all().in(LoanFields.LOAN_ID, chunk)));
+    }
+
     @Override
     public List<Loan> findAll() {
         String sql = "SELECT loan_id, copy_id, member_id, loan_date, due_date, return_date FROM loans";
         List<Loan> loans = new ArrayList<>();
         Connection connection = null;
         try {
-            connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql);
-                 ResultSet rs = statement.executeQuery()) {
+            connection = storage.connectForRead();
+            try (ResultSet rs = storage.prepare(connection, sql).executeQuery()) {
                 while (rs.next()) {
                     loans.add(mapRow(rs));
                 }
@@ -85,16 +97,31 @@ public class SqliteLoanRepository implements Repository<Loan, String> {
         return loans;
     }
 
+    @Override
+    public void forEach(Consumer<? super Loan> action) {
+        forEach(Query.all(), action);
+    }
+
+    @Override
+    public void forEach(Query<Loan> query, Consumer<? super Loan> action) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT loan_id, copy_id, member_id, loan_date, due_date, return_date FROM loans" +
+                SqliteQueries.toSql(query, COLUMNS, params);
+        try {
+            storage.forEachRow(sql, params, this::mapRow, action);
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to iterate loans", ex);
+        }
+    }
+
     @Override
     public void deleteById(String id) {
-        String sql = "DELETE FROM loans WHERE loan_id = ?";
         Connection connection = null;
         try {
             connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, id);
-                statement.executeUpdate();
-            }
+            PreparedStatement statement = storage.prepare(connection, DELETE_SQL);
+            statement.setString(1, id);
+            statement.executeUpdate();
         } catch (SQLException ex) {
             throw new StorageException("Failed to delete loan " + id, ex);
         } finally {
@@ -102,17 +129,62 @@ public class SqliteLoanRepository implements Repository<Loan, String> {
         }
     }
 
+    @Override
+    public void saveAll(Collection<Loan> loans) {
+        if (loans.isEmpty()) {
+            return;
+        }
+        storage.runInTransaction(() -> {
+            Connection connection = null;
+            try {
+                connection = storage.connect();
+                PreparedStatement statement = storage.prepare(connection, SAVE_SQL);
+                for (Loan loan : loans) {
+                    bind(statement, loan);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } catch (SQLException ex) {
+                throw new StorageException("Failed to save " + loans.size() + " loans", ex);
+            } finally {
+                storage.closeConnection(connection);
+            }
+        });
+    }
+
+    @Override
+    public void deleteAllById(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        storage.runInTransaction(() -> {
+            Connection connection = null;
+            try {
+                connection = storage.connect();
+                PreparedStatement statement = storage.prepare(connection, DELETE_SQL);
+                for (String id : ids) {
+                    statement.setString(1, id);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } catch (SQLException ex) {
+                throw new StorageException("Failed to delete " + ids.size() + " loans", ex);
+            } finally {
+                storage.closeConnection(connection);
+            }
+        });
+    }
+
     @Override
     public boolean existsById(String id) {
         String sql = "SELECT 1 FROM loans WHERE loan_id = ?";
         Connection connection = null;
         try {
-            connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, id);
-                try (ResultSet rs = statement.executeQuery()) {
-                    return rs.next();
-                }
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            statement.setString(1, id);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
             }
         } catch (SQLException ex) {
             throw new StorageException("Failed to check loan " + id, ex);
@@ -121,6 +193,58 @@ public class SqliteLoanRepository implements Repository<Loan, String> {
         }
     }
 
+    @Override
+    public List<Loan> findBy(Query<Loan> query) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT loan_id, copy_id, member_id, loan_date, due_date, return_date FROM loans" +
+                SqliteQueries.toSql(query, COLUMNS, params);
+        List<Loan> loans = new ArrayList<>();
+        Connection connection = null;
+        try {
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            SqliteQueries.bind(statement, params);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    loans.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to query loans", ex);
+        } finally {
+            storage.closeConnection(connection);
+        }
+        return loans;
+    }
+
+    @Override
+    public long count(Query<Loan> query) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM loans" + SqliteQueries.whereClause(query, COLUMNS, params);
+        Connection connection = null;
+        try {
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            SqliteQueries.bind(statement, params);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to count loans", ex);
+        } finally {
+            storage.closeConnection(connection);
+        }
+    }
+
+    private void bind(PreparedStatement statement, Loan loan) throws SQLException {
+        statement.setString(1, loan.getLoanId());
+        statement.setString(2, loan.getCopyId());
+        statement.setString(3, loan.getMemberId());
+        statement.setString(4, toText(loan.getLoanDate()));
+        statement.setString(5, toText(loan.getDueDate()));
+        statement.setString(6, toText(loan.getReturnDate()));
+    }
+
     private Loan mapRow(ResultSet rs) throws SQLException {
         Loan loan = new Loan();
         loan.setLoanId(rs.getString("loan_id"));
@@ -5,14 +5,30 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import lms.exception.StorageException;
 import lms.model.Member;
 import lms.model.MemberType;
 import lms.storage.Repository;
+import lms.storage.query.MemberFields;
+import lms.storage.query.Query;
 
 public class SqliteMemberRepository implements Repository<Member, String> {
+    private static final Map<String, String> COLUMNS = Map.of(
+            "memberId", "member_id",
+            "name", "name",
+            "email", "email",
+            "type", "type"
+    );
+    private static final String SAVE_SQL =
+            "INSERT INTO members(member_id, name, email, type) VALUES(?,?,?,?) " +
+            "ON CONFLICT(member_id) DO UPDATE SET name = excluded.name, email = excluded.email, " +
+            "type = excluded.type";
+    private static final String DELETE_SQL = "DELETE FROM members WHERE member_id = ?";
     private final SqliteStorage storage;
 
     public SqliteMemberRepository(SqliteStorage storage) {
@@ -21,17 +37,12 @@ public class SqliteMemberRepository implements Repository<Member, String> {
 
     @Override
     public void save(Member member) {
-        String sql = "INSERT OR REPLACE INTO members(member_id, name, email, type) VALUES(?,?,?,?)";
         Connection connection = null;
         try {
             connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, member.getMemberId());
-                statement.setString(2, member.getName());
-                statement.setString(3, member.getEmail());
-                statement.setString(4, member.getType().name());
-                statement.executeUpdate();
-            }
+            PreparedStatement statement = storage.prepare(connection, SAVE_SQL);
+            bind(statement, member);
+            statement.executeUpdate();
         } catch (SQLException ex) {
             throw new StorageException("Failed to save member " + member.getMemberId(), ex);
         } finally {
@@ -44,13 +55,12 @@ public class SqliteMemberRepository implements Repository<Member, String> {
         String sql = "SELECT member_id, name, email, type FROM members WHERE member_id = ?";
         Connection connection = null;
         try {
-            connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, id);
-                try (ResultSet rs = statement.executeQuery()) {
-                    if (rs.next()) {
-                        return Optional.of(mapRow(rs));
-                    }
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            statement.setString(1, id);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapRow(rs));
                 }
             }
         } catch (SQLException ex) {
@@ -61,15 +71,19 @@ public class SqliteMemberRepository implements Repository<Member, String> {
         return Optional.empty();
     }
 
+    @Override
+    public Map<String, Member> findAllById(Collection<String> ids) {
+        return SqliteQueries.findAllById(ids, chunk -> findBy(Query.<Member>all().in(MemberFields.MEMBER_ID, chunk)));
+    }
+
     @Override
     public List<Member> findAll() {
         String sql = "SELECT member_id, name, email, type FROM members";
         List<Member> members = new ArrayList<>();
         Connection connection = null;
         try {
-            connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql);
-                 ResultSet rs = statement.executeQuery()) {
+            connection = storage.connectForRead();
+            try (ResultSet rs = storage.prepare(connection, sql).executeQuery()) {
                 while (rs.next()) {
                     members.add(mapRow(rs));
                 }
@@ -82,16 +96,31 @@ public class SqliteMemberRepository implements Repository<Member, String> {
         return members;
     }
 
+    @Override
+    public void forEach(Consumer<? super Member> action) {
+        forEach(Query.all(), action);
+    }
+
+    @Override
+    public void forEach(Query<Member> query, Consumer<? super Member> action) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT member_id, name, email, type FROM members" +
+                SqliteQueries.toSql(query, COLUMNS, params);
+        try {
+            storage.forEachRow(sql, params, this::mapRow, action);
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to iterate members", ex);
+        }
+    }
+
     @Override
     public void deleteById(String id) {
-        String sql = "DELETE FROM members WHERE member_id = ?";
         Connection connection = null;
         try {
             connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, id);
-                statement.executeUpdate();
-            }
+            PreparedStatement statement = storage.prepare(connection, DELETE_SQL);
+            statement.setString(1, id);
+            statement.executeUpdate();
         } catch (SQLException ex) {
             throw new StorageException("Failed to delete member " + id, ex);
         } finally {
@@ -99,17 +128,62 @@ public class SqliteMemberRepository implements Repository<Member, String> {
         }
     }
 
+    @Override
+    public void saveAll(Collection<Member> members) {
+        if (members.isEmpty()) {
+            return;
+        }
+        storage.runInTransaction(() -> {
+            Connection connection = null;
+            try {
+                connection = storage.connect();
+                PreparedStatement statement = storage.prepare(connection, SAVE_SQL);
+                for (Member member : members) {
+                    bind(statement, member);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } catch (SQLException ex) {
+                throw new StorageException("Failed to save " + members.size() + " members", ex);
+            } finally {
+                storage.closeConnection(connection);
+            }
+        });
+    }
+
+    @Override
+    public void deleteAllById(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        storage.runInTransaction(() -> {
+            Connection connection = null;
+            try {
+                connection = storage.connect();
+                PreparedStatement statement = storage.prepare(connection, DELETE_SQL);
+                for (String id : ids) {
+                    statement.setString(1, id);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } catch (SQLException ex) {
+                throw new StorageException("Failed to delete " + ids.size() + " members", ex);
+            } finally {
+                storage.closeConnection(connection);
+            }
+        });
+    }
+
     @Override
     public boolean existsById(String id) {
         String sql = "SELECT 1 FROM members WHERE member_id = ?";
         Connection connection = null;
         try {
-            connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, id);
-                try (ResultSet rs = statement.executeQuery()) {
-                    return rs.next();
-                }
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            statement.setString(1, id);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
             }
         } catch (SQLException ex) {
             throw new StorageException("Failed to check member " + id, ex);
@@ -118,6 +192,85 @@ public class SqliteMemberRepository implements Repository<Member, String> {
         }
     }
 
+    @Override
+    public List<Member> findBy(Query<Member> query) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT member_id, name, email, type FROM members" +
+                SqliteQueries.toSql(query, COLUMNS, params);
+        List<Member> members = new ArrayList<>();
+        Connection connection = null;
+        try {
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            SqliteQueries.bind(statement, params);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    members.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to query members", ex);
+        } finally {
+            storage.closeConnection(connection);
+        }
+        return members;
+    }
+
+    @Override
+    public Optional<List<Member>> findByText(String text, int limit) {
+        String match = SqliteQueries.trigramMatch(text);
+        if (!storage.hasSearchIndexes() || match == null) {
+            return Optional.empty();
+        }
+        String sql = "SELECT m.member_id, m.name, m.email, m.type " +
+                "FROM members_fts JOIN members m ON m.rowid = members_fts.rowid " +
+                "WHERE members_fts MATCH ? ORDER BY m.rowid LIMIT ?";
+        List<Member> members = new ArrayList<>();
+        Connection connection = null;
+        try {
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            statement.setString(1, match);
+            statement.setInt(2, limit);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    members.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to search members", ex);
+        } finally {
+            storage.closeConnection(connection);
+        }
+        return Optional.of(members);
+    }
+
+    @Override
+    public long count(Query<Member> query) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM members" + SqliteQueries.whereClause(query, COLUMNS, params);
+        Connection connection = null;
+        try {
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            SqliteQueries.bind(statement, params);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to count members", ex);
+        } finally {
+            storage.closeConnection(connection);
+        }
+    }
+
+    private void bind(PreparedStatement statement, Member member) throws SQLException {
+        statement.setString(1, member.getMemberId());
+        statement.setString(2, member.getName());
+        statement.setString(3, member.getEmail());
+        statement.setString(4, member.getType().name());
+    }
+
     private Member mapRow(ResultSet rs) throws SQLException {
         Member member = new Member();
         member.setMemberId(rs.getString("member_id"));
@@ -0,0 +1,163 @@
+package lms.storage.sqlite;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import lms.exception.StorageException;
+import lms.model.Identifiable;
+import lms.storage.query.Condition;
+import lms.storage.query.Field;
+import lms.storage.query.Ordering;
+import lms.storage.query.Query;
+
+final class SqliteQueries {
+    private static final int ID_CHUNK_SIZE = 500;
+    private static final int[] IN_LIST_SIZES = {1, 8, 64, 512};
+
+    private SqliteQueries() {
+    }
+
+    static String toSql(Query<?> query, Map<String, String> columns, List<Object> params) {
+        StringBuilder sql = new StringBuilder(whereClause(query, columns, params));
+        List<? extends Ordering<?>> orderings = query.getOrderings();
+        for (int i = 0; i < orderings.size(); i++) {
+            Ordering<?> ordering = orderings.get(i);
+            sql.append(i == 0 ? " ORDER BY " : ", ")
+                    .append(column(ordering.getField(), columns))
+                    .append(ordering.isDescending() ? " DESC" : " ASC");
+        }
+        if (!orderings.isEmpty()) {
+            sql.append(", rowid ASC");
+        }
+        if (query.hasLimit()) {
+            sql.append(" LIMIT ?");
+            params.add(query.getLimit());
+        }
+        return sql.toString();
+    }
+
+    static String whereClause(Query<?> query, Map<String, String> columns, List<Object> params) {
+        StringBuilder sql = new StringBuilder();
+        for (Condition<?> condition : query.getConditions()) {
+            sql.append(sql.length() == 0 ? " WHERE " : " AND ");
+            String column = column(condition.getField(), columns);
+            switch (condition.getOperator()) {
+                case IS_NULL:
+                    sql.append(column).append(" IS NULL");
+                    break;
+                case NOT_NULL:
+                    sql.append(column).append(" IS NOT NULL");
+                    break;
+                case EQ_IGNORE_CASE:
+                    sql.append(SqliteConnectionPool.LOWER_FUNCTION).append('(').append(column).append(") = ?");
+                    params.add(Condition.fold(condition.getValue()));
+                    break;
+                case CONTAINS_IGNORE_CASE:
+                    sql.append("instr(").append(SqliteConnectionPool.LOWER_FUNCTION).append('(').append(column)
+                            .append("), ?) > 0");
+                    params.add(Condition.fold(condition.getValue()));
+                    break;
+                case IN:
+                    List<?> values = condition.getValues();
+                    sql.append(column).append(" IN (");
+                    for (int i = 0; i < inListSize(values.size()); i++) {
+                        sql.append(i == 0 ? "?" : ",?");
+                        params.add(toSqlValue(values.get(Math.min(i, values.size() - 1))));
+                    }
+                    sql.append(")");
+                    break;
+                default:
+                    sql.append(column).append(' ').append(symbol(condition.getOperator())).append(" ?");
+                    params.add(toSqlValue(condition.getValue()));
+                    break;
+            }
+        }
+        return sql.toString();
+    }
+
+    static <T extends Identifiable<ID>, ID> Map<ID, T> findAllById(Collection<ID> ids,
+                                                                   Function<List<ID>, List<T>> loader) {
+        List<ID> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinct.remove(null);
+        Map<ID, T> found = new HashMap<>();
+        for (int start = 0; start < distinct.size(); start += ID_CHUNK_SIZE) {
+            List<ID> chunk = distinct.subList(start, Math.min(start + ID_CHUNK_SIZE, distinct.size()));
+            for (T entity : loader.apply(chunk)) {
+                found.put(entity.getId(), entity);
+            }
+        }
+        return found;
+    }
+
+    private static int inListSize(int count) {
+        if (count == 0) {
+            return 0;
+        }
+        for (int size : IN_LIST_SIZES) {
+            if (count <= size) {
+                return size;
+            }
+        }
+        return count;
+    }
+
+    static String trigramMatch(String text) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            for (int i = 0; i + 3 <= token.length(); i++) {
+                trigrams.add('"' + token.substring(i, i + 3) + '"');
+            }
+        }
+        return trigrams.isEmpty() ? null : String.join(" OR ", trigrams);
+    }
+
+    static void bind(PreparedStatement statement, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            statement.setObject(i + 1, params.get(i));
+        }
+    }
+
+    private static String column(Field<?, ?> field, Map<String, String> columns) {
+        String column = columns.get(field.getName());
+        if (column == null) {
+            throw new StorageException("Unsupported query field: " + field.getName());
+        }
+        return column;
+    }
+
+    private static String symbol(Condition.Operator operator) {
+        switch (operator) {
+            case EQ:
+                return "=";
+            case LT:
+                return "<";
+            case LE:
+                return "<=";
+            case GT:
+                return ">";
+            case GE:
+                return ">=";
+            default:
+                throw new IllegalArgumentException("No SQL symbol for " + operator);
+        }
+    }
+
+    private static Object toSqlValue(Object value) {
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        if (value instanceof LocalDate) {
+            return value.toString();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,45 @@
+package lms.storage.sqlite;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import lms.exception.StorageException;
+import lms.model.Loan;
+import lms.storage.OverdueLoanRow;
+import lms.storage.ReportQueries;
+
+class SqliteReportQueries implements ReportQueries {
+    private static final String OVERDUE_SQL =
+            "SELECT l.loan_id, l.copy_id, l.member_id, l.loan_date, l.due_date, b.isbn, b.title, m.name " +
+            "FROM loans l " +
+            "LEFT JOIN copies c ON c.copy_id = l.copy_id " +
+            "LEFT JOIN books b ON b.isbn = c.isbn " +
+            "LEFT JOIN members m ON m.member_id = l.member_id " +
+            "WHERE l.return_date IS NULL AND l.due_date < ?";
+    private final SqliteStorage storage;
+
+    SqliteReportQueries(SqliteStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void forEachOverdueLoan(LocalDate today, Consumer<? super OverdueLoanRow> action) {
+        try {
+            storage.forEachRow(OVERDUE_SQL, List.of(today.toString()), this::mapOverdueRow, action);
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to query overdue loans", ex);
+        }
+    }
+
+    private OverdueLoanRow mapOverdueRow(ResultSet rs) throws SQLException {
+        Loan loan = new Loan();
+        loan.setLoanId(rs.getString("loan_id"));
+        loan.setCopyId(rs.getString("copy_id"));
+        loan.setMemberId(rs.getString("member_id"));
+        loan.setLoanDate(LocalDate.parse(rs.getString("loan_date")));
+        loan.setDueDate(LocalDate.parse(rs.getString("due_date")));
+        return new OverdueLoanRow(loan, rs.getString("isbn"), rs.getString("title"), rs.getString("name"));
+    }
+}
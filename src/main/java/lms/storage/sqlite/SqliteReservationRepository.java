@@ -6,14 +6,31 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import lms.exception.StorageException;
 import lms.model.Reservation;
 import lms.model.ReservationStatus;
 import lms.storage.Repository;
+import lms.storage.query.Query;
+import lms.storage.query.ReservationFields;
 
 public class SqliteReservationRepository implements Repository<Reservation, String> {
+    private static final Map<String, String> COLUMNS = Map.of(
+            "reservationId", "res_id",
+            "isbn", "isbn",
+            "memberId", "member_id",
+            "createdAt", "created_at",
+            "status", "status"
+    );
+    private static final String SAVE_SQL =
+            "INSERT INTO reservations(res_id, isbn, member_id, created_at, status) VALUES(?,?,?,?,?) " +
+            "ON CONFLICT(res_id) DO UPDATE SET isbn = excluded.isbn, member_id = excluded.member_id, " +
+            "created_at = excluded.created_at, status = excluded.status";
+    private static final String DELETE_SQL = "DELETE FROM reservations WHERE res_id = ?";
     private final SqliteStorage storage;
 
     public SqliteReservationRepository(SqliteStorage storage) {
@@ -22,18 +39,12 @@ public class SqliteReservationRepository implements Repository<Reservation, Stri
 
     @Override
     public void save(Reservation reservation) {
-        String sql = "INSERT OR REPLACE INTO reservations(res_id, isbn, member_id, created_at, status) VALUES(?,?,?,?,?)";
         Connection connection = null;
         try {
             connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, reservation.getReservationId());
-                statement.setString(2, reservation.getIsbn());
-                statement.setString(3, reservation.getMemberId());
-                statement.setString(4, toText(reservation.getCreatedAt()));
-                statement.setString(5, reservation.getStatus().name());
-                statement.executeUpdate();
-            }
+            PreparedStatement statement = storage.prepare(connection, SAVE_SQL);
+            bind(statement, reservation);
+            statement.executeUpdate();
         } catch (SQLException ex) {
             throw new StorageException("Failed to save reservation " + reservation.getReservationId(), ex);
         } finally {
@@ -46,13 +57,12 @@ public class SqliteReservationRepository implements Repository<Reservation, Stri
         String sql = "SELECT res_id, isbn, member_id, created_at, status FROM reservations WHERE res_id = ?";
         Connection connection = null;
         try {
-            connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, id);
-                try (ResultSet rs = statement.executeQuery()) {
-                    if (rs.next()) {
-                        return Optional.of(mapRow(rs));
-                    }
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            statement.setString(1, id);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapRow(rs));
                 }
             }
         } catch (SQLException ex) {
@@ -63,15 +73,19 @@ public class SqliteReservationRepository implements Repository<Reservation, Stri
         return Optional.empty();
     }
 
+    @Override
+    public Map<String, Reservation> findAllById(Collection<String> ids) {
+        return SqliteQueries.findAllById(ids, chunk -> findBy(Query.<Reservation>all().in(ReservationFields.RESERVATION_ID, chunk)));
+    }
+
     @Override
     public List<Reservation> findAll() {
         String sql = "SELECT res_id, isbn, member_id, created_at, status FROM reservations";
         List<Reservation> reservations = new ArrayList<>();
         Connection connection = null;
         try {
-            connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql);
-                 ResultSet rs = statement.executeQuery()) {
+            connection = storage.connectForRead();
+            try (ResultSet rs = storage.prepare(connection, sql).executeQuery()) {
                 while (rs.next()) {
                     reservations.add(mapRow(rs));
                 }
@@ -84,16 +98,31 @@ public class SqliteReservationRepository implements Repository<Reservation, Stri
         return reservations;
     }
 
+    @Override
+    public void forEach(Consumer<? super Reservation> action) {
+        forEach(Query.all(), action);
+    }
+
+    @Override
+    public void forEach(Query<Reservation> query, Consumer<? super Reservation> action) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT res_id, isbn, member_id, created_at, status FROM reservations" +
+                SqliteQueries.toSql(query, COLUMNS, params);
+        try {
+            storage.forEachRow(sql, params, this::mapRow, action);
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to iterate reservations", ex);
+        }
+    }
+
     @Override
     public void deleteById(String id) {
-        String sql = "DELETE FROM reservations WHERE res_id = ?";
         Connection connection = null;
         try {
             connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, id);
-                statement.executeUpdate();
-            }
+            PreparedStatement statement = storage.prepare(connection, DELETE_SQL);
+            statement.setString(1, id);
+            statement.executeUpdate();
         } catch (SQLException ex) {
             throw new StorageException("Failed to delete reservation " + id, ex);
         } finally {
@@ -101,17 +130,62 @@ public class SqliteReservationRepository implements Repository<Reservation, Stri
         }
     }
 
+    @Override
+    public void saveAll(Collection<Reservation> reservations) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        storage.runInTransaction(() -> {
+            Connection connection = null;
+            try {
+                connection = storage.connect();
+                PreparedStatement statement = storage.prepare(connection, SAVE_SQL);
+                for (Reservation reservation : reservations) {
+                    bind(statement, reservation);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } catch (SQLException ex) {
+                throw new StorageException("Failed to save " + reservations.size() + " reservations", ex);
+            } finally {
+                storage.closeConnection(connection);
+            }
+        });
+    }
+
+    @Override
+    public void deleteAllById(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        storage.runInTransaction(() -> {
+            Connection connection = null;
+            try {
+                connection = storage.connect();
+                PreparedStatement statement = storage.prepare(connection, DELETE_SQL);
+                for (String id : ids) {
+                    statement.setString(1, id);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } catch (SQLException ex) {
+                throw new StorageException("Failed to delete " + ids.size() + " reservations", ex);
+            } finally {
+                storage.closeConnection(connection);
+            }
+        });
+    }
+
     @Override
     public boolean existsById(String id) {
         String sql = "SELECT 1 FROM reservations WHERE res_id = ?";
         Connection connection = null;
         try {
-            connection = storage.connect();
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, id);
-                try (ResultSet rs = statement.executeQuery()) {
-                    return rs.next();
-                }
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            statement.setString(1, id);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
             }
         } catch (SQLException ex) {
             throw new StorageException("Failed to check reservation " + id, ex);
@@ -120,6 +194,57 @@ public class SqliteReservationRepository implements Repository<Reservation, Stri
         }
     }
 
+    @Override
+    public List<Reservation> findBy(Query<Reservation> query) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT res_id, isbn, member_id, created_at, status FROM reservations" +
+                SqliteQueries.toSql(query, COLUMNS, params);
+        List<Reservation> reservations = new ArrayList<>();
+        Connection connection = null;
+        try {
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            SqliteQueries.bind(statement, params);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    reservations.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to query reservations", ex);
+        } finally {
+            storage.closeConnection(connection);
+        }
+        return reservations;
+    }
+
+    @Override
+    public long count(Query<Reservation> query) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM reservations" + SqliteQueries.whereClause(query, COLUMNS, params);
+        Connection connection = null;
+        try {
+            connection = storage.connectForRead();
+            PreparedStatement statement = storage.prepare(connection, sql);
+            SqliteQueries.bind(statement, params);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException ex) {
+            throw new StorageException("Failed to count reservations", ex);
+        } finally {
+            storage.closeConnection(connection);
+        }
+    }
+
+    private void bind(PreparedStatement statement, Reservation reservation) throws SQLException {
+        statement.setString(1, reservation.getReservationId());
+        statement.setString(2, reservation.getIsbn());
+        statement.setString(3, reservation.getMemberId());
+        statement.setString(4, toText(reservation.getCreatedAt()));
+        statement.setString(5, reservation.getStatus().name());
+    }
+
     private Reservation mapRow(ResultSet rs) throws SQLException {
         Reservation reservation = new Reservation();
         reservation.setReservationId(rs.getString("res_id"));
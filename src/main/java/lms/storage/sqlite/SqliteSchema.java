@@ -0,0 +1,225 @@
+package lms.storage.sqlite;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+final class SqliteSchema {
+    private static final Logger LOGGER = Logger.getLogger(SqliteSchema.class.getName());
+    private static final List<String> SEARCH_INDEXES = List.of("books_fts", "members_fts");
+    private static final List<String> SEARCH_TRIGGER_SUFFIXES = List.of("_ai", "_ad", "_au");
+    private static final int SEARCH_INDEX_VERSION = 4;
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "create tables", SqliteSchema::createTables),
+            new Migration(2, "add books.book_id", statement ->
+                    addColumnIfMissing(statement, "books", "book_id", "TEXT")),
+            new Migration(3, "add lookup indexes", SqliteSchema::createLookupIndexes),
+            new Migration(SEARCH_INDEX_VERSION, "add full-text search indexes", SqliteSchema::createSearchIndexes),
+            new Migration(5, "add open loan due date index", statement ->
+                    statement.execute("CREATE INDEX IF NOT EXISTS idx_loans_open_due "
+                            + "ON loans(due_date) WHERE return_date IS NULL"))
+    );
+
+    private SqliteSchema() {
+    }
+
+    static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    static void migrate(Connection connection) throws SQLException {
+        int current = readVersion(connection);
+        if (current > latestVersion()) {
+            throw new SQLException("Database schema version " + current
+                    + " is newer than the supported version " + latestVersion());
+        }
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= current) {
+                continue;
+            }
+            inTransaction(connection, statement -> {
+                migration.step.apply(statement);
+                statement.execute("PRAGMA user_version = " + migration.version);
+            });
+            LOGGER.info(String.format("Applied SQLite schema migration %d (%s)",
+                    migration.version, migration.description));
+        }
+        if (current >= SEARCH_INDEX_VERSION && !hasSearchIndexes(connection)) {
+            inTransaction(connection, SqliteSchema::createSearchIndexes);
+        }
+    }
+
+    private static void inTransaction(Connection connection, Step step) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            step.apply(statement);
+            connection.commit();
+        } catch (SQLException | RuntimeException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    static boolean hasSearchIndexes(Connection connection) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        List<String> triggers = new ArrayList<>();
+        for (String index : SEARCH_INDEXES) {
+            tables.add("'" + index + "'");
+            for (String suffix : SEARCH_TRIGGER_SUFFIXES) {
+                triggers.add("'" + index + suffix + "'");
+            }
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT "
+                     + "SUM(type = 'table' AND name IN (" + String.join(", ", tables) + ")), "
+                     + "SUM(type = 'trigger' AND name IN (" + String.join(", ", triggers) + ")) "
+                     + "FROM sqlite_master")) {
+            return rs.next() && rs.getInt(1) == tables.size() && rs.getInt(2) == triggers.size();
+        }
+    }
+
+    private static int readVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void createTables(Statement statement) throws SQLException {
+        statement.execute("CREATE TABLE IF NOT EXISTS books (" +
+                "isbn TEXT PRIMARY KEY," +
+                "book_id TEXT," +
+                "title TEXT NOT NULL," +
+                "author TEXT NOT NULL," +
+                "year INTEGER," +
+                "genre TEXT," +
+                "total_loans INTEGER DEFAULT 0" +
+                ")");
+        statement.execute("CREATE TABLE IF NOT EXISTS copies (" +
+                "copy_id TEXT PRIMARY KEY," +
+                "isbn TEXT NOT NULL," +
+                "status TEXT NOT NULL," +
+                "FOREIGN KEY(isbn) REFERENCES books(isbn)" +
+                ")");
+        statement.execute("CREATE TABLE IF NOT EXISTS members (" +
+                "member_id TEXT PRIMARY KEY," +
+                "name TEXT NOT NULL," +
+                "email TEXT NOT NULL," +
+                "type TEXT NOT NULL" +
+                ")");
+        statement.execute("CREATE TABLE IF NOT EXISTS loans (" +
+                "loan_id TEXT PRIMARY KEY," +
+                "copy_id TEXT NOT NULL," +
+                "member_id TEXT NOT NULL," +
+                "loan_date TEXT NOT NULL," +
+                "due_date TEXT NOT NULL," +
+                "return_date TEXT," +
+                "FOREIGN KEY(copy_id) REFERENCES copies(copy_id)," +
+                "FOREIGN KEY(member_id) REFERENCES members(member_id)" +
+                ")");
+        statement.execute("CREATE TABLE IF NOT EXISTS reservations (" +
+                "res_id TEXT PRIMARY KEY," +
+                "isbn TEXT NOT NULL," +
+                "member_id TEXT NOT NULL," +
+                "created_at TEXT NOT NULL," +
+                "status TEXT NOT NULL," +
+                "FOREIGN KEY(isbn) REFERENCES books(isbn)," +
+                "FOREIGN KEY(member_id) REFERENCES members(member_id)" +
+                ")");
+    }
+
+    private static void createLookupIndexes(Statement statement) throws SQLException {
+        statement.execute("CREATE INDEX IF NOT EXISTS idx_copies_isbn_status ON copies(isbn, status)");
+        statement.execute("CREATE INDEX IF NOT EXISTS idx_loans_member_return ON loans(member_id, return_date)");
+        statement.execute("CREATE INDEX IF NOT EXISTS idx_loans_copy ON loans(copy_id)");
+        statement.execute("CREATE INDEX IF NOT EXISTS idx_reservations_isbn_status_created "
+                + "ON reservations(isbn, status, created_at)");
+    }
+
+    private static void createSearchIndexes(Statement statement) throws SQLException {
+        try {
+            statement.execute("CREATE VIRTUAL TABLE IF NOT EXISTS books_fts USING fts5("
+                    + "title, author, genre, isbn, book_id, content='books', tokenize='trigram')");
+            statement.execute("CREATE VIRTUAL TABLE IF NOT EXISTS members_fts USING fts5("
+                    + "name, member_id, email, content='members', tokenize='trigram')");
+            addSearchTriggers(statement, "books", List.of("title", "author", "genre", "isbn", "book_id"));
+            addSearchTriggers(statement, "members", List.of("name", "member_id", "email"));
+            statement.execute("INSERT INTO books_fts(books_fts) VALUES('rebuild')");
+            statement.execute("INSERT INTO members_fts(members_fts) VALUES('rebuild')");
+        } catch (SQLException ex) {
+            for (String index : SEARCH_INDEXES) {
+                dropSearchIndex(statement, index);
+            }
+            LOGGER.warning("SQLite build lacks FTS5 trigram support, search will scan tables: " + ex.getMessage());
+        }
+    }
+
+    private static void dropSearchIndex(Statement statement, String index) throws SQLException {
+        for (String suffix : SEARCH_TRIGGER_SUFFIXES) {
+            statement.execute("DROP TRIGGER IF EXISTS " + index + suffix);
+        }
+        statement.execute("DROP TABLE IF EXISTS " + index);
+    }
+
+    private static void addSearchTriggers(Statement statement, String table, List<String> columns)
+            throws SQLException {
+        String index = table + "_fts";
+        String names = String.join(", ", columns);
+        String insertNew = "INSERT INTO " + index + "(rowid, " + names + ") VALUES(new.rowid, "
+                + prefixed("new.", columns) + ");";
+        String deleteOld = "INSERT INTO " + index + "(" + index + ", rowid, " + names + ") VALUES('delete', old.rowid, "
+                + prefixed("old.", columns) + ");";
+        statement.execute("CREATE TRIGGER IF NOT EXISTS " + index + "_ai AFTER INSERT ON " + table
+                + " BEGIN " + insertNew + " END");
+        statement.execute("CREATE TRIGGER IF NOT EXISTS " + index + "_ad AFTER DELETE ON " + table
+                + " BEGIN " + deleteOld + " END");
+        statement.execute("CREATE TRIGGER IF NOT EXISTS " + index + "_au AFTER UPDATE ON " + table
+                + " BEGIN " + deleteOld + " " + insertNew + " END");
+    }
+
+    private static String prefixed(String prefix, List<String> columns) {
+        StringBuilder values = new StringBuilder();
+        for (String column : columns) {
+            if (values.length() > 0) {
+                values.append(", ");
+            }
+            values.append(prefix).append(column);
+        }
+        return values.toString();
+    }
+
+    private static void addColumnIfMissing(Statement statement, String table, String column, String type)
+            throws SQLException {
+        try (ResultSet rs = statement.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return;
+                }
+            }
+        }
+        statement.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+    }
+
+    private interface Step {
+        void apply(Statement statement) throws SQLException;
+    }
+
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final Step step;
+
+        private Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package lms.storage.sqlite;
+
+public class SqliteSettings {
+    private int readerConnections = 2;
+    private int statementCacheSize = 32;
+    private String journalMode = "WAL";
+    private String synchronous = "NORMAL";
+    private long cacheSize = -16000;
+    private long mmapSize = 64L * 1024 * 1024;
+    private String tempStore = "MEMORY";
+    private int busyTimeoutMillis = 5000;
+
+    public int getReaderConnections() {
+        return readerConnections;
+    }
+
+    public void setReaderConnections(int readerConnections) {
+        this.readerConnections = readerConnections;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public String getJournalMode() {
+        return journalMode;
+    }
+
+    public void setJournalMode(String journalMode) {
+        this.journalMode = journalMode;
+    }
+
+    public String getSynchronous() {
+        return synchronous;
+    }
+
+    public void setSynchronous(String synchronous) {
+        this.synchronous = synchronous;
+    }
+
+    public long getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(long cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public long getMmapSize() {
+        return mmapSize;
+    }
+
+    public void setMmapSize(long mmapSize) {
+        this.mmapSize = mmapSize;
+    }
+
+    public String getTempStore() {
+        return tempStore;
+    }
+
+    public void setTempStore(String tempStore) {
+        this.tempStore = tempStore;
+    }
+
+    public int getBusyTimeoutMillis() {
+        return busyTimeoutMillis;
+    }
+
+    public void setBusyTimeoutMillis(int busyTimeoutMillis) {
+        this.busyTimeoutMillis = busyTimeoutMillis;
+    }
+}
@@ -4,9 +4,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import lms.exception.StorageException;
 import lms.model.Book;
@@ -15,22 +18,33 @@ import lms.model.Loan;
 import lms.model.Member;
 import lms.model.Reservation;
 import lms.storage.LibraryStorage;
+import lms.storage.ReportQueries;
 import lms.storage.Repository;
 
 public class SqliteStorage implements LibraryStorage {
+    private static final int CURSOR_FETCH_SIZE = 500;
     private final String url;
+    private final SqliteConnectionPool pool;
     private final ThreadLocal<Connection> transactionConnection = new ThreadLocal<>();
+    private final ThreadLocal<Connection> cursorConnection = new ThreadLocal<>();
     private final Repository<Book, String> bookRepository;
     private final Repository<BookCopy, String> copyRepository;
     private final Repository<Member, String> memberRepository;
     private final Repository<Loan, String> loanRepository;
     private final Repository<Reservation, String> reservationRepository;
+    private final ReportQueries reportQueries;
+    private boolean searchIndexes;
 
     public SqliteStorage(String dataDir) {
+        this(dataDir, new SqliteSettings());
+    }
+
+    public SqliteStorage(String dataDir, SqliteSettings settings) {
         try {
             Path base = Paths.get(dataDir);
             Files.createDirectories(base);
             this.url = "jdbc:sqlite:" + base.resolve("lms.db");
+            this.pool = new SqliteConnectionPool(url, settings);
             initSchema();
         } catch (Exception ex) {
             throw new StorageException("Failed to initialize SQLite storage", ex);
@@ -40,6 +54,7 @@ public class SqliteStorage implements LibraryStorage {
         this.memberRepository = new SqliteMemberRepository(this);
         this.loanRepository = new SqliteLoanRepository(this);
         this.reservationRepository = new SqliteReservationRepository(this);
+        this.reportQueries = new SqliteReportQueries(this);
     }
 
     Connection connect() throws SQLException {
@@ -47,70 +62,77 @@ public class SqliteStorage implements LibraryStorage {
         if (existing != null) {
             return existing;
         }
-        return DriverManager.getConnection(url);
+        return pool.acquireWriter();
+    }
+
+    Connection connectForRead() throws SQLException {
+        Connection existing = transactionConnection.get();
+        if (existing != null) {
+            return existing;
+        }
+        existing = cursorConnection.get();
+        if (existing != null) {
+            return existing;
+        }
+        return pool.acquireReader();
+    }
+
+    <T> void forEachRow(String sql, List<Object> params, RowMapper<T> mapper, Consumer<? super T> action)
+            throws SQLException {
+        Connection connection = connectForRead();
+        Connection previousCursor = cursorConnection.get();
+        cursorConnection.set(connection);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setFetchSize(CURSOR_FETCH_SIZE);
+            SqliteQueries.bind(statement, params);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(mapper.map(rs));
+                }
+            }
+        } finally {
+            if (previousCursor == null) {
+                cursorConnection.remove();
+            } else {
+                cursorConnection.set(previousCursor);
+            }
+            closeConnection(connection);
+        }
+    }
+
+    PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        return pool.prepare(connection, sql);
+    }
+
+    public long getStatementCacheHits() {
+        return pool.getStatementCacheHits();
+    }
+
+    public long getStatementCacheMisses() {
+        return pool.getStatementCacheMisses();
+    }
+
+    boolean hasSearchIndexes() {
+        return searchIndexes;
     }
 
     void closeConnection(Connection connection) {
         if (connection == null) {
             return;
         }
-        if (transactionConnection.get() == connection) {
+        if (transactionConnection.get() == connection || cursorConnection.get() == connection) {
             return;
         }
-        try {
-            connection.close();
-        } catch (SQLException ignored) {
-            // Ignore close failures for standalone connections.
-        }
+        pool.release(connection);
     }
 
     private void initSchema() throws SQLException {
-        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
-            statement.execute("CREATE TABLE IF NOT EXISTS books (" +
-                    "isbn TEXT PRIMARY KEY," +
-                    "book_id TEXT," +
-                    "title TEXT NOT NULL," +
-                    "author TEXT NOT NULL," +
-                    "year INTEGER," +
-                    "genre TEXT," +
-                    "total_loans INTEGER DEFAULT 0" +
-                    ")");
-            try {
-                statement.execute("ALTER TABLE books ADD COLUMN book_id TEXT");
-            } catch (SQLException ignored) {
-                // Column exists or table not empty; ignore.
-            }
-            statement.execute("CREATE TABLE IF NOT EXISTS copies (" +
-                    "copy_id TEXT PRIMARY KEY," +
-                    "isbn TEXT NOT NULL," +
-                    "status TEXT NOT NULL," +
-                    "FOREIGN KEY(isbn) REFERENCES books(isbn)" +
-                    ")");
-            statement.execute("CREATE TABLE IF NOT EXISTS members (" +
-                    "member_id TEXT PRIMARY KEY," +
-                    "name TEXT NOT NULL," +
-                    "email TEXT NOT NULL," +
-                    "type TEXT NOT NULL" +
-                    ")");
-            statement.execute("CREATE TABLE IF NOT EXISTS loans (" +
-                    "loan_id TEXT PRIMARY KEY," +
-                    "copy_id TEXT NOT NULL," +
-                    "member_id TEXT NOT NULL," +
-                    "loan_date TEXT NOT NULL," +
-                    "due_date TEXT NOT NULL," +
-                    "return_date TEXT," +
-                    "FOREIGN KEY(copy_id) REFERENCES copies(copy_id)," +
-                    "FOREIGN KEY(member_id) REFERENCES members(member_id)" +
-                    ")");
-            statement.execute("CREATE TABLE IF NOT EXISTS reservations (" +
-                    "res_id TEXT PRIMARY KEY," +
-                    "isbn TEXT NOT NULL," +
-                    "member_id TEXT NOT NULL," +
-                    "created_at TEXT NOT NULL," +
-                    "status TEXT NOT NULL," +
-                    "FOREIGN KEY(isbn) REFERENCES books(isbn)," +
-                    "FOREIGN KEY(member_id) REFERENCES members(member_id)" +
-                    ")");
+        Connection connection = connect();
+        try {
+            SqliteSchema.migrate(connection);
+            searchIndexes = SqliteSchema.hasSearchIndexes(connection);
+        } finally {
+            closeConnection(connection);
         }
     }
 
@@ -139,6 +161,11 @@ public class SqliteStorage implements LibraryStorage {
         return reservationRepository;
     }
 
+    @Override
+    public Optional<ReportQueries> reportQueries() {
+        return Optional.of(reportQueries);
+    }
+
     @Override
     public <T> T runInTransaction(Supplier<T> action) {
         if (transactionConnection.get() != null) {
@@ -146,7 +173,7 @@ public class SqliteStorage implements LibraryStorage {
         }
         Connection connection = null;
         try {
-            connection = DriverManager.getConnection(url);
+            connection = pool.acquireWriter();
             connection.setAutoCommit(false);
             transactionConnection.set(connection);
             T result = action.get();
@@ -160,13 +187,25 @@ public class SqliteStorage implements LibraryStorage {
             throw new StorageException("Failed to execute SQLite transaction", ex);
         } finally {
             transactionConnection.remove();
+            restoreAutoCommit(connection);
             closeConnection(connection);
         }
     }
 
     @Override
     public void close() {
-        // SQLite connections are per-operation.
+        pool.close();
+    }
+
+    private void restoreAutoCommit(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException ignored) {
+            // A broken connection is replaced on its next checkout.
+        }
     }
 
     private void rollbackQuietly(Connection connection) {
@@ -179,4 +218,8 @@ public class SqliteStorage implements LibraryStorage {
             // Ignore rollback failures.
         }
     }
-}
\ No newline at end of file
+
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+}
@@ -12,11 +12,13 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import lms.model.Book;
-import lms.model.CopyStatus;
+import lms.storage.query.Page;
 
 public class BooksWindow extends BasicWindow {
     private final UiContext context;
     private final Table<String> table;
+    private final KeysetPager pager = new KeysetPager();
+    private final SearchPager search = new SearchPager();
     private String selectedIsbn;
 
     public BooksWindow(UiContext context) {
@@ -33,7 +35,7 @@ public class BooksWindow extends BasicWindow {
         setComponent(main);
         setHints(java.util.Arrays.asList(Window.Hint.CENTERED, Window.Hint.EXPANDED));
 
-        refreshTable(context.getLibraryService().listBooks());
+        refresh();
     }
 
     private Panel buildActions() {
@@ -45,13 +47,45 @@ public class BooksWindow extends BasicWindow {
         actions.addComponent(new Button("Remove", this::removeBook));
         actions.addComponent(new Button("Select", this::selectBookFromTable));
         actions.addComponent(new Button("Search", this::searchBooks));
-        actions.addComponent(new Button("Refresh", this::refresh));
+        actions.addComponent(new Button("Prev page", this::previousPage));
+        actions.addComponent(new Button("Next page", this::nextPage));
+        actions.addComponent(new Button("Refresh", this::showAll));
         actions.addComponent(new Button("Close", this::close));
         return actions;
     }
 
     private void refresh() {
-        refreshTable(context.getLibraryService().listBooks());
+        if (search.isActive()) {
+            refreshTable(searchPage());
+            return;
+        }
+        Page<Book> page = context.getLibraryService().listBooks(pager.getCurrentKey(), KeysetPager.PAGE_SIZE);
+        pager.setNextKey(page.hasNext() ? page.getLast().getIsbn() : null);
+        refreshTable(page.getItems());
+    }
+
+    private void previousPage() {
+        if (search.isActive() ? search.previous() : pager.previous()) {
+            refresh();
+        }
+    }
+
+    private void nextPage() {
+        if (search.isActive() ? search.next() : pager.next()) {
+            refresh();
+        }
+    }
+
+    private void showAll() {
+        search.clear();
+        refresh();
+    }
+
+    private List<Book> searchPage() {
+        List<Book> results = context.getLibraryService().searchBooks(search.getQuery(),
+                KeysetPager.PAGE_SIZE + 1, search.getOffset());
+        search.setHasNext(results.size() > KeysetPager.PAGE_SIZE);
+        return results.subList(0, Math.min(results.size(), KeysetPager.PAGE_SIZE));
     }
 
     private void addBook() {
@@ -173,13 +207,16 @@ public class BooksWindow extends BasicWindow {
     }
 
     private void searchBooks() {
-        Optional<String> queryOpt = DialogUtils.promptText(context.getGui(), "Search Books", "Query", "");
+        Optional<String> queryOpt = DialogUtils.promptTextWithSuggestions(context.getGui(), "Search Books", "Query",
+                context.getLibraryService()::completeBooks);
         if (queryOpt.isEmpty()) {
             return;
         }
         try {
-            refreshTable(context.getLibraryService().searchBooks(queryOpt.get()));
+            search.start(queryOpt.get());
+            refreshTable(searchPage());
         } catch (RuntimeException ex) {
+            search.clear();
             DialogUtils.showError(context.getGui(), "Error", ex.getMessage());
         }
     }
@@ -205,9 +242,7 @@ public class BooksWindow extends BasicWindow {
                     String.valueOf(book.getYear()),
                     book.getGenre(),
                     String.valueOf(book.getTotalLoans()),
-                    String.valueOf(context.getLibraryService().getCopiesByIsbn(book.getIsbn()).stream()
-                            .filter(copy -> copy.getStatus() == CopyStatus.AVAILABLE)
-                            .count())
+                    String.valueOf(context.getLibraryService().availableCount(book.getIsbn()))
             );
         }
         if (!selectedFound) {
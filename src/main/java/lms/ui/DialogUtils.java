@@ -1,6 +1,16 @@
 package lms.ui;
 
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.gui2.ActionListBox;
+import com.googlecode.lanterna.gui2.BasicWindow;
+import com.googlecode.lanterna.gui2.Button;
+import com.googlecode.lanterna.gui2.Direction;
+import com.googlecode.lanterna.gui2.Label;
+import com.googlecode.lanterna.gui2.LinearLayout;
 import com.googlecode.lanterna.gui2.MultiWindowTextGUI;
+import com.googlecode.lanterna.gui2.Panel;
+import com.googlecode.lanterna.gui2.TextBox;
+import com.googlecode.lanterna.gui2.Window;
 import com.googlecode.lanterna.gui2.dialogs.ListSelectDialogBuilder;
 import com.googlecode.lanterna.gui2.dialogs.MessageDialog;
 import com.googlecode.lanterna.gui2.dialogs.MessageDialogButton;
@@ -9,8 +19,11 @@ import java.awt.Toolkit;
 import java.awt.datatransfer.StringSelection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiFunction;
 
 public final class DialogUtils {
+    private static final int SUGGESTION_LIMIT = 8;
+
     private DialogUtils() {
     }
 
@@ -22,6 +35,41 @@ public final class DialogUtils {
         return Optional.of(result.trim());
     }
 
+    public static Optional<String> promptTextWithSuggestions(MultiWindowTextGUI gui, String title, String label,
+                                                             BiFunction<String, Integer, List<String>> suggestions) {
+        BasicWindow window = new BasicWindow(title);
+        window.setHints(List.of(Window.Hint.MODAL, Window.Hint.CENTERED));
+        Panel panel = new Panel(new LinearLayout(Direction.VERTICAL));
+        panel.addComponent(new Label(label));
+        TextBox input = new TextBox(new TerminalSize(50, 1));
+        ActionListBox suggestionList = new ActionListBox(new TerminalSize(50, SUGGESTION_LIMIT));
+        String[] result = new String[1];
+        input.setTextChangeListener((text, byUser) -> {
+            suggestionList.clearItems();
+            for (String suggestion : suggestions.apply(text, SUGGESTION_LIMIT)) {
+                suggestionList.addItem(suggestion, () -> {
+                    input.setText(suggestion);
+                    window.setFocusedInteractable(input);
+                });
+            }
+        });
+        panel.addComponent(input);
+        panel.addComponent(suggestionList);
+        Panel buttons = new Panel(new LinearLayout(Direction.HORIZONTAL));
+        buttons.addComponent(new Button("OK", () -> {
+            result[0] = input.getText();
+            window.close();
+        }));
+        buttons.addComponent(new Button("Cancel", window::close));
+        panel.addComponent(buttons);
+        window.setComponent(panel);
+        gui.addWindowAndWait(window);
+        if (result[0] == null) {
+            return Optional.empty();
+        }
+        return Optional.of(result[0].trim());
+    }
+
     public static Optional<Integer> promptInt(MultiWindowTextGUI gui, String title, String label, int initial) {
         Optional<String> value = promptText(gui, title, label, String.valueOf(initial));
         if (value.isEmpty()) {
@@ -0,0 +1,49 @@
+package lms.ui;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+class KeysetPager {
+    static final int PAGE_SIZE = 100;
+    private final Deque<String> previousKeys = new ArrayDeque<>();
+    private String currentKey;
+    private String nextKey;
+
+    String getCurrentKey() {
+        return currentKey;
+    }
+
+    void setNextKey(String nextKey) {
+        this.nextKey = nextKey;
+    }
+
+    boolean next() {
+        if (nextKey == null) {
+            return false;
+        }
+        previousKeys.push(currentKey == null ? "" : currentKey);
+        currentKey = nextKey;
+        nextKey = null;
+        return true;
+    }
+
+    boolean previous() {
+        if (previousKeys.isEmpty()) {
+            return false;
+        }
+        String key = previousKeys.pop();
+        currentKey = key.isEmpty() ? null : key;
+        nextKey = null;
+        return true;
+    }
+
+    void reset() {
+        previousKeys.clear();
+        currentKey = null;
+        nextKey = null;
+    }
+
+    int getPageNumber() {
+        return previousKeys.size() + 1;
+    }
+}
@@ -18,11 +18,13 @@ import lms.model.Book;
 import lms.model.Loan;
 import lms.model.Member;
 import lms.service.ReturnResult;
+import lms.storage.query.Page;
 
 public class LoansWindow extends BasicWindow {
     private final UiContext context;
     private final Table<String> table;
     private final CheckBox overdueOnly;
+    private final KeysetPager pager = new KeysetPager();
     private String selectedLoanId;
     private String selectedCopyId;
 
@@ -31,6 +33,10 @@ public class LoansWindow extends BasicWindow {
         this.context = context;
         this.table = new Table<>("Selected", "Loan ID", "Copy ID", "Member ID", "Loan Date", "Due Date", "Overdue");
         this.overdueOnly = new CheckBox("Overdue only");
+        overdueOnly.addListener(checked -> {
+            pager.reset();
+            refresh();
+        });
         table.setCellSelection(false);
         table.setSelectAction(this::selectLoanFromTable);
 
@@ -53,16 +59,32 @@ public class LoansWindow extends BasicWindow {
         actions.addComponent(new Button("Return selected", this::returnSelected));
         actions.addComponent(new Button("Return by ID", this::returnByCopyId));
         actions.addComponent(new Button("Select", this::selectLoanFromTable));
+        actions.addComponent(new Button("Prev page", this::previousPage));
+        actions.addComponent(new Button("Next page", this::nextPage));
         actions.addComponent(new Button("Refresh", this::refresh));
         actions.addComponent(new Button("Close", this::close));
         return actions;
     }
 
     private void refresh() {
-        List<Loan> loans = overdueOnly.isChecked()
-                ? context.getLibraryService().getOverdueLoans(LocalDate.now())
-                : context.getLibraryService().getActiveLoans();
-        refreshTable(loans);
+        Page<Loan> page = overdueOnly.isChecked()
+                ? context.getLibraryService().getOverdueLoans(LocalDate.now(), pager.getCurrentKey(),
+                        KeysetPager.PAGE_SIZE)
+                : context.getLibraryService().getActiveLoans(pager.getCurrentKey(), KeysetPager.PAGE_SIZE);
+        pager.setNextKey(page.hasNext() ? page.getLast().getLoanId() : null);
+        refreshTable(page.getItems());
+    }
+
+    private void previousPage() {
+        if (pager.previous()) {
+            refresh();
+        }
+    }
+
+    private void nextPage() {
+        if (pager.next()) {
+            refresh();
+        }
     }
 
     private void loanBySelection() {
@@ -19,10 +19,13 @@ import lms.model.Loan;
 import lms.model.Member;
 import lms.model.MemberType;
 import lms.model.Reservation;
+import lms.storage.query.Page;
 
 public class MembersWindow extends BasicWindow {
     private final UiContext context;
     private final Table<String> table;
+    private final KeysetPager pager = new KeysetPager();
+    private final SearchPager search = new SearchPager();
     private String selectedMemberId;
     private List<Member> displayedMembers = new ArrayList<>();
 
@@ -40,7 +43,7 @@ public class MembersWindow extends BasicWindow {
         setComponent(main);
         setHints(java.util.Arrays.asList(Window.Hint.CENTERED, Window.Hint.EXPANDED));
 
-        refreshTable(context.getLibraryService().listMembers());
+        refresh();
         updateTitle();
     }
 
@@ -52,17 +55,50 @@ public class MembersWindow extends BasicWindow {
         actions.addComponent(new Button("Select", this::selectMemberFromTable));
         actions.addComponent(new Button("Actions", this::memberActions));
         actions.addComponent(new Button("Search", this::searchMembers));
-        actions.addComponent(new Button("Refresh", this::refresh));
+        actions.addComponent(new Button("Prev page", this::previousPage));
+        actions.addComponent(new Button("Next page", this::nextPage));
+        actions.addComponent(new Button("Refresh", this::showAll));
         actions.addComponent(new Button("Close", this::close));
         return actions;
     }
 
     private void refresh() {
-        refreshTable(context.getLibraryService().listMembers());
+        if (search.isActive()) {
+            refreshTable(searchPage());
+            return;
+        }
+        Page<Member> page = context.getLibraryService().listMembers(pager.getCurrentKey(), KeysetPager.PAGE_SIZE);
+        pager.setNextKey(page.hasNext() ? page.getLast().getMemberId() : null);
+        refreshTable(page.getItems());
+    }
+
+    private void previousPage() {
+        if (search.isActive() ? search.previous() : pager.previous()) {
+            refresh();
+        }
+    }
+
+    private void nextPage() {
+        if (search.isActive() ? search.next() : pager.next()) {
+            refresh();
+        }
+    }
+
+    private void showAll() {
+        search.clear();
+        refresh();
+    }
+
+    private List<Member> searchPage() {
+        List<Member> results = context.getLibraryService().searchMembers(search.getQuery(),
+                KeysetPager.PAGE_SIZE + 1, search.getOffset());
+        search.setHasNext(results.size() > KeysetPager.PAGE_SIZE);
+        return results.subList(0, Math.min(results.size(), KeysetPager.PAGE_SIZE));
     }
 
     private void searchMembers() {
-        Optional<String> queryOpt = DialogUtils.promptText(context.getGui(), "Search members", "Name or Member ID", "");
+        Optional<String> queryOpt = DialogUtils.promptTextWithSuggestions(context.getGui(), "Search members",
+                "Name or Member ID", context.getLibraryService()::completeMembers);
         if (queryOpt.isEmpty()) {
             return;
         }
@@ -71,12 +107,14 @@ public class MembersWindow extends BasicWindow {
             return;
         }
         try {
-            List<Member> results = context.getLibraryService().searchMembers(queryOpt.get());
+            search.start(queryOpt.get());
+            List<Member> results = searchPage();
             if (results.isEmpty()) {
                 DialogUtils.showInfo(context.getGui(), "Search members", "No matches found.");
             }
             refreshTable(results);
         } catch (RuntimeException ex) {
+            search.clear();
             DialogUtils.showError(context.getGui(), "Error", ex.getMessage());
         }
     }
@@ -20,7 +20,6 @@ import lms.model.Member;
 import lms.report.MemberLoanReportItem;
 import lms.report.OverdueReportItem;
 import lms.report.PopularBookItem;
-import lms.report.ReportService;
 
 public class ReportsWindow extends BasicWindow {
     private final UiContext context;
@@ -53,23 +52,23 @@ public class ReportsWindow extends BasicWindow {
     }
 
     private void showOverdue() {
-        ReportService reports = context.getReportService();
-        List<OverdueReportItem> items = reports.buildOverdueReport(LocalDate.now());
         List<String> headers = Arrays.asList("ISBN", "Title", "Member", "Due", "Days", "Fine");
         List<String[]> rows = new ArrayList<>();
-        for (OverdueReportItem item : items) {
-            rows.add(new String[] {
-                    item.getIsbn(),
-                    item.getTitle(),
-                    item.getMemberId(),
-                    String.valueOf(item.getDueDate()),
-                    String.valueOf(item.getDaysOverdue()),
-                    formatMoney(item.getFineCents())
-            });
-        }
+        context.getReportService().forEachOverdue(LocalDate.now(), item -> rows.add(toOverdueRow(item)));
         updateTable(headers, rows);
     }
 
+    private String[] toOverdueRow(OverdueReportItem item) {
+        return new String[] {
+                item.getIsbn(),
+                item.getTitle(),
+                item.getMemberId(),
+                String.valueOf(item.getDueDate()),
+                String.valueOf(item.getDaysOverdue()),
+                formatMoney(item.getFineCents())
+        };
+    }
+
     private void showMemberReport() {
         Optional<String> memberOpt = selectMemberId("Member report");
         if (memberOpt.isEmpty()) {
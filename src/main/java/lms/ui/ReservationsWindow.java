@@ -15,10 +15,12 @@ import lms.model.Book;
 import lms.model.Member;
 import lms.model.Reservation;
 import lms.model.ReservationStatus;
+import lms.storage.query.Page;
 
 public class ReservationsWindow extends BasicWindow {
     private final UiContext context;
     private final Table<String> table;
+    private final KeysetPager pager = new KeysetPager();
     private String selectedReservationId;
 
     public ReservationsWindow(UiContext context) {
@@ -44,13 +46,30 @@ public class ReservationsWindow extends BasicWindow {
         actions.addComponent(new Button("Edit", this::editReservation));
         actions.addComponent(new Button("Remove", this::removeReservation));
         actions.addComponent(new Button("Select", this::selectReservationFromTable));
+        actions.addComponent(new Button("Prev page", this::previousPage));
+        actions.addComponent(new Button("Next page", this::nextPage));
         actions.addComponent(new Button("Refresh", this::refresh));
         actions.addComponent(new Button("Close", this::close));
         return actions;
     }
 
     private void refresh() {
-        refreshTable(context.getLibraryService().listReservations());
+        Page<Reservation> page = context.getLibraryService().listReservations(pager.getCurrentKey(),
+                KeysetPager.PAGE_SIZE);
+        pager.setNextKey(page.hasNext() ? page.getLast().getReservationId() : null);
+        refreshTable(page.getItems());
+    }
+
+    private void previousPage() {
+        if (pager.previous()) {
+            refresh();
+        }
+    }
+
+    private void nextPage() {
+        if (pager.next()) {
+            refresh();
+        }
     }
 
     private void addReservation() {
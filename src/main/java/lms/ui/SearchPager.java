@@ -0,0 +1,52 @@
+package lms.ui;
+
+class SearchPager {
+    private String query;
+    private int offset;
+    private boolean hasNext;
+
+    boolean isActive() {
+        return query != null;
+    }
+
+    String getQuery() {
+        return query;
+    }
+
+    int getOffset() {
+        return offset;
+    }
+
+    void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+
+    void start(String query) {
+        this.query = query;
+        offset = 0;
+        hasNext = false;
+    }
+
+    boolean next() {
+        if (!hasNext) {
+            return false;
+        }
+        offset += KeysetPager.PAGE_SIZE;
+        hasNext = false;
+        return true;
+    }
+
+    boolean previous() {
+        if (offset == 0) {
+            return false;
+        }
+        offset = Math.max(0, offset - KeysetPager.PAGE_SIZE);
+        return true;
+    }
+
+    void clear() {
+        query = null;
+        offset = 0;
+        hasNext = false;
+    }
+}
@@ -49,4 +49,69 @@ public class AppConfig {
         String raw = properties.getProperty("demo.enabled", "true");
         return !raw.trim().equalsIgnoreCase("false");
     }
+
+    public boolean isFileJournalEnabled() {
+        String raw = properties.getProperty("file.journal.enabled", "false");
+        return raw.trim().equalsIgnoreCase("true");
+    }
+
+    public long getFileJournalCompactBytes() {
+        return getLong("file.journal.compact.bytes", 8L * 1024 * 1024);
+    }
+
+    public long getFileGroupCommitIntervalMillis() {
+        return getLong("file.groupcommit.interval.ms", 0);
+    }
+
+    public int getFileGroupCommitMaxMutations() {
+        return (int) getLong("file.groupcommit.max.mutations", 500);
+    }
+
+    public int getSqliteReaderConnections() {
+        return (int) getLong("sqlite.pool.readers", 2);
+    }
+
+    public int getSqliteStatementCacheSize() {
+        return (int) getLong("sqlite.statement.cache.size", 32);
+    }
+
+    public String getSqliteJournalMode() {
+        return properties.getProperty("sqlite.journal.mode", "WAL").trim();
+    }
+
+    public String getSqliteSynchronous() {
+        return properties.getProperty("sqlite.synchronous", "NORMAL").trim();
+    }
+
+    public long getSqliteCacheSize() {
+        return getLong("sqlite.cache.size", -16000);
+    }
+
+    public long getSqliteMmapSize() {
+        return getLong("sqlite.mmap.size", 64L * 1024 * 1024);
+    }
+
+    public String getSqliteTempStore() {
+        return properties.getProperty("sqlite.temp.store", "MEMORY").trim();
+    }
+
+    public int getSqliteBusyTimeoutMillis() {
+        return (int) getLong("sqlite.busy.timeout.ms", 5000);
+    }
+
+    public int getSearchParallelThreshold() {
+        return (int) getLong("search.parallel.threshold", 20_000);
+    }
+
+    private long getLong(String key, long defaultValue) {
+        String raw = properties.getProperty(key);
+        if (raw == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
 }
\ No newline at end of file
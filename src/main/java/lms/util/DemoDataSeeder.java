@@ -2,7 +2,9 @@ package lms.util;
 
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import lms.model.Book;
 import lms.model.BookCopy;
 import lms.model.Loan;
@@ -20,13 +22,15 @@ public final class DemoDataSeeder {
         }
 
         List<BookSeed> books = buildBookSeeds();
+        Map<Book, Integer> catalog = new LinkedHashMap<>();
         int index = 0;
         for (BookSeed seed : books) {
             Book book = new Book(seed.isbn, seed.title, seed.author, seed.year, seed.genre);
             book.setBookId(String.format("BOOK-%03d", index + 1));
-            service.addBook(book, seed.copies);
+            catalog.put(book, seed.copies);
             index++;
         }
+        service.addBooks(catalog);
 
         List<Member> members = Arrays.asList(
                 new Member("MEM-001", "Aino Laine", "aino.laine@example.com", MemberType.STUDENT),
@@ -46,9 +50,7 @@ public final class DemoDataSeeder {
                 new Member("MEM-015", "Hanna Arto", "hanna.arto@example.com", MemberType.STUDENT),
                 new Member("MEM-016", "Elias Niemi", "elias.niemi@example.com", MemberType.STUDENT)
         );
-        for (Member member : members) {
-            service.addMember(member);
-        }
+        service.addMembers(members);
 
         String[] memberIds = members.stream().map(Member::getMemberId).toArray(String[]::new);
         LocalDate today = LocalDate.now();
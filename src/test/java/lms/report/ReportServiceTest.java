@@ -2,6 +2,7 @@ package lms.report;
 
 import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import lms.model.Book;
 import lms.model.BookCopy;
@@ -13,6 +14,7 @@ import lms.policy.LoanPolicyResolver;
 import lms.policy.PerDayFinePolicy;
 import lms.service.LibraryService;
 import lms.storage.file.FileStorage;
+import lms.storage.sqlite.SqliteStorage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -79,4 +81,56 @@ class ReportServiceTest {
         assertFalse(items.isEmpty());
         assertEquals("9781234567891", items.get(0).getIsbn());
     }
-}
\ No newline at end of file
+
+    @Test
+    void buildOverdueReport_resolvesEntitiesAcrossBatches() {
+        Book book = new Book("9781234567890", "Title", "Author", 2023, "Fiction");
+        storage.books().save(book);
+        storage.members().save(new Member("M1", "Alice", "a@example.com", MemberType.STUDENT));
+        List<BookCopy> copies = new ArrayList<>();
+        List<Loan> loans = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            copies.add(new BookCopy("C" + i, book.getIsbn(), CopyStatus.LOANED));
+            loans.add(new Loan("L" + i, "C" + i, "M1", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 5)));
+        }
+        storage.copies().saveAll(copies);
+        storage.loans().saveAll(loans);
+
+        List<OverdueReportItem> items = reports.buildOverdueReport(LocalDate.of(2024, 1, 10));
+        assertEquals(1200, items.size());
+        for (OverdueReportItem item : items) {
+            assertEquals("Title", item.getTitle());
+            assertEquals("Alice", item.getMemberName());
+        }
+    }
+
+    @Test
+    void buildOverdueReport_joinsInSqlite() {
+        try (SqliteStorage sqlite = new SqliteStorage(tempDir.resolve("sqlite").toString())) {
+            LibraryService sqliteService = new LibraryService(sqlite, new LoanPolicyResolver(),
+                    new PerDayFinePolicy(50), () -> LocalDate.of(2024, 1, 10));
+            ReportService sqliteReports = new ReportService(sqlite, sqliteService, () -> LocalDate.of(2024, 1, 10));
+            Book book = new Book("9781234567890", "Title", "Author", 2023, "Fiction");
+            sqlite.books().save(book);
+            sqlite.copies().save(new BookCopy("C1", book.getIsbn(), CopyStatus.LOANED));
+            sqlite.copies().save(new BookCopy("C2", book.getIsbn(), CopyStatus.AVAILABLE));
+            sqlite.members().save(new Member("M1", "Alice", "a@example.com", MemberType.STUDENT));
+            sqlite.loans().save(new Loan("L1", "C1", "M1", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 5)));
+            sqlite.loans().save(new Loan("L2", "C9", "M9", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 8)));
+            Loan returned = new Loan("L3", "C2", "M1", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 3));
+            returned.setReturnDate(LocalDate.of(2024, 1, 2));
+            sqlite.loans().save(returned);
+
+            List<OverdueReportItem> items = sqliteReports.buildOverdueReport(LocalDate.of(2024, 1, 10));
+            assertEquals(2, items.size());
+            OverdueReportItem first = items.get(0);
+            assertEquals("Title", first.getTitle());
+            assertEquals("Alice", first.getMemberName());
+            assertEquals(250, first.getFineCents());
+            OverdueReportItem orphan = items.get(1);
+            assertEquals("-", orphan.getTitle());
+            assertEquals("M9", orphan.getMemberId());
+            assertEquals(2, orphan.getDaysOverdue());
+        }
+    }
+}
@@ -3,11 +3,19 @@ package lms.service;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import lms.exception.RuleViolationException;
+import lms.exception.StorageException;
+import lms.exception.ValidationException;
 import lms.model.Book;
 import lms.model.BookCopy;
 import lms.model.CopyStatus;
@@ -18,7 +26,10 @@ import lms.model.Reservation;
 import lms.model.ReservationStatus;
 import lms.policy.LoanPolicyResolver;
 import lms.policy.PerDayFinePolicy;
+import lms.storage.LibraryStorage;
+import lms.storage.Repository;
 import lms.storage.file.FileStorage;
+import lms.storage.sqlite.SqliteStorage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -48,6 +59,92 @@ class LibraryServiceTest {
         assertEquals(2, service.getCopiesByIsbn("9781234567890").size());
     }
 
+    @Test
+    void availableCount_tracksLoansReturnsAndLostCopies() {
+        Book book = new Book("9781234567890", "Title", "Author", 2023, "Fiction");
+        service.addBook(book, 2);
+        service.addMember(new Member("MEM-1", "Alice", "a@example.com", MemberType.STUDENT));
+        assertEquals(2, service.availableCount("9781234567890"));
+
+        Loan loan = service.loanByIsbn("9781234567890", "MEM-1");
+        BookCopy other = service.getCopiesByIsbn("9781234567890").stream()
+                .filter(copy -> !copy.getCopyId().equals(loan.getCopyId()))
+                .findFirst()
+                .orElseThrow();
+        service.markCopyLost(other.getCopyId());
+        assertEquals(0, service.availableCount("9781234567890"));
+
+        service.returnByCopyId(loan.getCopyId());
+        assertEquals(1, service.availableCount("9781234567890"));
+        assertEquals(2, service.getCopiesByIsbn("9781234567890").size());
+    }
+
+    @Test
+    void addMembers_rejectsWholeBatchOnDuplicate() {
+        List<Member> batch = List.of(
+                new Member("MEM-1", "Alice", "a@example.com", MemberType.STUDENT),
+                new Member("MEM-1", "Bob", "b@example.com", MemberType.ADULT));
+
+        assertThrows(RuleViolationException.class, () -> service.addMembers(batch));
+        assertTrue(service.listMembers().isEmpty());
+    }
+
+    @Test
+    void indexes_followStorageWhenCommitFailsAfterWriting() {
+        FileStorage files = new FileStorage(tempDir.resolve("flaky").toString());
+        AtomicBoolean failCommit = new AtomicBoolean();
+        LibraryStorage flaky = new LibraryStorage() {
+            @Override
+            public Repository<Book, String> books() {
+                return files.books();
+            }
+
+            @Override
+            public Repository<BookCopy, String> copies() {
+                return files.copies();
+            }
+
+            @Override
+            public Repository<Member, String> members() {
+                return files.members();
+            }
+
+            @Override
+            public Repository<Loan, String> loans() {
+                return files.loans();
+            }
+
+            @Override
+            public Repository<Reservation, String> reservations() {
+                return files.reservations();
+            }
+
+            @Override
+            public <T> T runInTransaction(Supplier<T> action) {
+                T result = files.runInTransaction(action);
+                if (failCommit.get()) {
+                    throw new StorageException("Commit acknowledgement lost");
+                }
+                return result;
+            }
+
+            @Override
+            public void close() {
+                files.close();
+            }
+        };
+        LibraryService flakyService = new LibraryService(flaky, new LoanPolicyResolver(), new PerDayFinePolicy(50),
+                dateProvider);
+        flakyService.addBook(new Book("9781234567890", "Title", "Author", 2023, "Fiction"), 1);
+        flakyService.addMember(new Member("MEM-1", "Alice", "a@example.com", MemberType.STUDENT));
+
+        failCommit.set(true);
+        assertThrows(StorageException.class, () -> flakyService.loanByIsbn("9781234567890", "MEM-1"));
+
+        assertTrue(flakyService.verifyActiveLoanIndex());
+        assertEquals(0, flakyService.availableCount("9781234567890"));
+    }
+
     @Test
     void loanByIsbn_usesAvailableCopy() {
         Book book = new Book("9781234567890", "Title", "Author", 2023, "Fiction");
@@ -115,6 +212,174 @@ class LibraryServiceTest {
         assertEquals(book.getIsbn(), results.get(0).getIsbn());
     }
 
+    @Test
+    void searchBooks_tracksUpdatesAndRemovals() {
+        Book renamed = new Book("9781234567890", "Northern Skies", "A. Koskinen", 1999, "Fantasy");
+        Book removed = new Book("9781234567891", "Southern Seas", "B. Laine", 2001, "Adventure");
+        service.addBooks(Map.of(renamed, 0, removed, 0));
+        assertEquals(renamed.getIsbn(), service.searchBooks("Northern Skies").get(0).getIsbn());
+
+        service.updateBook(renamed.getIsbn(), null, "Eastern Winds", "A. Koskinen", 1999, "Fantasy");
+        service.removeBook(removed.getIsbn());
+
+        assertEquals(renamed.getIsbn(), service.searchBooks("Estern Wind").get(0).getIsbn());
+        assertTrue(service.searchBooks("Northern Skies").stream()
+                .noneMatch(result -> result.getTitle().equals("Northern Skies")));
+        assertTrue(service.searchBooks("Southern Seas").stream()
+                .noneMatch(result -> result.getIsbn().equals(removed.getIsbn())));
+    }
+
+    @Test
+    void searchBooksAndMembers_pageThroughFullRanking() {
+        for (int i = 0; i < 12; i++) {
+            service.addBook(new Book(String.format("97812345678%02d", i), "Northern Sky " + (i % 5), "Author " + i,
+                    2000, "Fantasy"), 0);
+            service.addMember(new Member("MEM-" + i, "Northern Finch " + (i % 4), "m" + i + "@example.com",
+                    MemberType.ADULT));
+        }
+
+        List<Book> allBooks = service.searchBooks("Nothern Skies");
+        List<Member> allMembers = service.searchMembers("Nothern Finch");
+        assertEquals(allBooks.subList(5, 10), service.searchBooks("Nothern Skies", 5, 5));
+        assertEquals(allBooks.subList(10, 12), service.searchBooks("Nothern Skies", 5, 10));
+        assertEquals(allMembers.subList(0, 3), service.searchMembers("Nothern Finch", 3, 0));
+        assertTrue(service.searchMembers("Nothern Finch", 5, 12).isEmpty());
+        assertThrows(ValidationException.class, () -> service.searchBooks("Nothern Skies", 0, 0));
+    }
+
+    @Test
+    void searchBooks_returnsMatchesBeyondTextSearchCandidatesOnSqlite() {
+        SqliteStorage storage = new SqliteStorage(tempDir.resolve("sqlite").toString());
+        try {
+            LibraryService sqliteService = new LibraryService(storage, new LoanPolicyResolver(),
+                    new PerDayFinePolicy(50), dateProvider);
+            Map<Book, Integer> batch = new HashMap<>();
+            for (int i = 0; i < 250; i++) {
+                batch.put(new Book(String.format("9781234%06d", i), "Northern Sky " + i, "Author", 2000,
+                        "Fantasy"), 0);
+            }
+            sqliteService.addBooks(batch);
+
+            assertEquals(250, sqliteService.searchBooks("Northern Sky").size());
+            assertEquals(10, sqliteService.searchBooks("Northern Sky", 10, 240).size());
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void search_ranksTheSameOnSqliteAndFileStorage() {
+        SqliteStorage storage = new SqliteStorage(tempDir.resolve("sqlite").toString());
+        try {
+            LibraryService sqliteService = new LibraryService(storage, new LoanPolicyResolver(),
+                    new PerDayFinePolicy(50), dateProvider);
+            for (LibraryService target : List.of(service, sqliteService)) {
+                target.addBook(new Book("9781234567890", "Skyline Drive", "Author", 2000, "Fiction"), 0);
+                target.addBook(new Book("9781234567891", "Sk Yl In E", "Author", 2001, "Fiction"), 0);
+                target.addMember(new Member("MEM-1", "Annabel Lee", "annabel@example.com", MemberType.ADULT));
+                target.addMember(new Member("MEM-2", "An Nab El", "nab@example.com", MemberType.ADULT));
+            }
+
+            assertEquals(titles(service.searchBooks("skyline", 10, 0)),
+                    titles(sqliteService.searchBooks("skyline", 10, 0)));
+            assertEquals(2, sqliteService.searchBooks("skyline", 10, 0).size());
+            assertEquals(names(service.searchMembers("annabel", 10, 0)),
+                    names(sqliteService.searchMembers("annabel", 10, 0)));
+            assertEquals(2, sqliteService.searchMembers("annabel", 10, 0).size());
+        } finally {
+            storage.close();
+        }
+    }
+
+    private static List<String> titles(List<Book> books) {
+        return books.stream().map(Book::getTitle).collect(Collectors.toList());
+    }
+
+    private static List<String> names(List<Member> members) {
+        return members.stream().map(Member::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    void reservationQueue_keepsSameDayOrderAfterSqliteRestart() {
+        String dataDir = tempDir.resolve("sqlite").toString();
+        SqliteStorage storage = new SqliteStorage(dataDir);
+        List<String> reservationIds = new ArrayList<>();
+        try {
+            LibraryService sqliteService = new LibraryService(storage, new LoanPolicyResolver(),
+                    new PerDayFinePolicy(50), dateProvider);
+            sqliteService.addBook(new Book("9781234567890", "Title", "Author", 2023, "Fiction"), 0);
+            for (int i = 1; i <= 3; i++) {
+                sqliteService.addMember(new Member("MEM-" + i, "Member " + i, "m" + i + "@example.com",
+                        MemberType.ADULT));
+                reservationIds.add(sqliteService.reserveByIsbn("9781234567890", "MEM-" + i).getReservationId());
+            }
+            sqliteService.updateReservation(reservationIds.get(0), "MEM-1", ReservationStatus.QUEUED);
+        } finally {
+            storage.close();
+        }
+
+        SqliteStorage reopened = new SqliteStorage(dataDir);
+        try {
+            LibraryService restarted = new LibraryService(reopened, new LoanPolicyResolver(),
+                    new PerDayFinePolicy(50), dateProvider);
+            for (int i = 0; i < reservationIds.size(); i++) {
+                assertEquals(i + 1, restarted.getQueuePosition(reservationIds.get(i)));
+            }
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void searchMembers_parallelScoringMatchesSequentialRanking() {
+        for (int i = 0; i < 60; i++) {
+            service.addMember(new Member("MEM-" + i, "Northern Finch " + (i % 7), "m" + i + "@example.com",
+                    MemberType.ADULT));
+        }
+        List<Member> sequential = service.searchMembers("Nothern Finch");
+        List<Member> sequentialPage = service.searchMembers("Nothern Finch", 5, 3);
+
+        service.setParallelSearchThreshold(1);
+        assertEquals(sequential, service.searchMembers("Nothern Finch"));
+        assertEquals(sequentialPage, service.searchMembers("Nothern Finch", 5, 3));
+    }
+
+    @Test
+    void completeBooksAndMembers_followsAddsUpdatesAndRemovals() {
+        Book lord = new Book("9781234567890", "The Lord of the Rings", "J. R. R. Tolkien", 1954, "Fantasy");
+        Book lorna = new Book("9781234567891", "Lorna Doone", "R. D. Blackmore", 1869, "Romance");
+        service.addBooks(Map.of(lord, 0, lorna, 0));
+        service.addMember(new Member("MEM-1", "Anna Virtanen", "anna.v@example.com", MemberType.ADULT));
+
+        assertEquals(List.of("The Lord of the Rings", "Lorna Doone"), service.completeBooks("Lor", 5));
+        assertEquals(List.of("The Lord of the Rings"), service.completeBooks("lord of", 5));
+        assertEquals(List.of("J. R. R. Tolkien"), service.completeBooks("tolk", 5));
+        assertEquals(List.of("The Lord of the Rings"), service.completeBooks("lo", 1));
+        assertEquals(List.of("anna.v@example.com", "Anna Virtanen"), service.completeMembers("ann", 5));
+
+        service.updateBook(lord.getIsbn(), null, "The Hobbit", "J. R. R. Tolkien", 1937, "Fantasy");
+        service.removeBook(lorna.getIsbn());
+        service.addMember(new Member("MEM-2", "Ville Annala", "ville@example.com", MemberType.ADULT));
+        service.removeMember("MEM-1");
+
+        assertTrue(service.completeBooks("lor", 5).isEmpty());
+        assertEquals(List.of("The Hobbit"), service.completeBooks("hob", 5));
+        assertEquals(List.of("Ville Annala"), service.completeMembers("ann", 5));
+        assertTrue(service.completeMembers(" ", 5).isEmpty());
+        assertThrows(ValidationException.class, () -> service.completeMembers("ann", 0));
+    }
+
+    @Test
+    void completeMembers_matchesWholeLastNames() {
+        service.addMember(new Member("MEM-1", "Anna Smith", "anna@example.com", MemberType.ADULT));
+        service.addMember(new Member("MEM-2", "Zed Smith", "zed@example.com", MemberType.ADULT));
+        service.addMember(new Member("MEM-3", "Smithers Bob", "bob@example.com", MemberType.ADULT));
+        assertEquals(List.of("Anna Smith", "Zed Smith", "Smithers Bob"), service.completeMembers("smith", 10));
+
+        service.addMember(new Member("MEM-4", "Harry Lord", "harry@example.com", MemberType.ADULT));
+        assertEquals(List.of("Harry Lord"), service.completeMembers("lord", 10));
+    }
+
     @Test
     void loanByIsbn_respectsLoanLimit() {
         Book book = new Book("9781234567890", "Title", "Author", 2023, "Fiction");
@@ -132,6 +397,23 @@ class LibraryServiceTest {
                 () -> service.loanByIsbn("9781234567890", "MEM-1"));
     }
 
+    @Test
+    void returnByCopyId_freesLoanLimitSlot() {
+        Book book = new Book("9781234567890", "Title", "Author", 2023, "Fiction");
+        service.addBook(book, 4);
+        service.addMember(new Member("MEM-1", "Bob", "b@example.com", MemberType.ADULT));
+        Loan first = service.loanByIsbn("9781234567890", "MEM-1");
+        service.loanByIsbn("9781234567890", "MEM-1");
+        service.loanByIsbn("9781234567890", "MEM-1");
+        assertThrows(RuleViolationException.class, () -> service.loanByIsbn("9781234567890", "MEM-1"));
+
+        service.returnByCopyId(first.getCopyId());
+        service.loanByIsbn("9781234567890", "MEM-1");
+
+        assertTrue(service.verifyActiveLoanIndex());
+        assertThrows(RuleViolationException.class, () -> service.removeMember("MEM-1"));
+    }
+
     @Test
     void reserveByIsbn_queuesWhenUnavailable() {
         Book book = new Book("9781234567890", "Title", "Author", 2023, "Fiction");
@@ -175,6 +457,50 @@ class LibraryServiceTest {
         assertEquals(CopyStatus.RESERVED, result.getReservedCopy().getStatus());
     }
 
+    @Test
+    void reservationQueue_promotesInArrivalOrder() {
+        Book book = new Book("9781234567890", "Title", "Author", 2023, "Fiction");
+        service.addBook(book, 1);
+        service.addMember(new Member("MEM-1", "Fred", "f@example.com", MemberType.STUDENT));
+        service.addMember(new Member("MEM-2", "Gina", "g@example.com", MemberType.STUDENT));
+        service.addMember(new Member("MEM-3", "Hugo", "h@example.com", MemberType.STUDENT));
+        service.addMember(new Member("MEM-4", "Iris", "i@example.com", MemberType.STUDENT));
+        Loan loan = service.loanByIsbn("9781234567890", "MEM-1");
+        Reservation second = service.reserveByIsbn("9781234567890", "MEM-2");
+        Reservation third = service.reserveByIsbn("9781234567890", "MEM-3");
+        Reservation fourth = service.reserveByIsbn("9781234567890", "MEM-4");
+        assertEquals(2, service.getQueuePosition(third.getReservationId()));
+
+        service.removeReservation(third.getReservationId());
+        ReturnResult result = service.returnByCopyId(loan.getCopyId());
+
+        assertEquals(second.getReservationId(), result.getReadyReservation().getReservationId());
+        assertEquals(0, service.getQueuePosition(second.getReservationId()));
+        assertEquals(1, service.getQueuePosition(fourth.getReservationId()));
+        assertThrows(RuleViolationException.class,
+                () -> service.updateReservation(fourth.getReservationId(), null, ReservationStatus.READY));
+        assertEquals(1, service.getQueuePosition(fourth.getReservationId()));
+    }
+
+    @Test
+    void reservationQueue_reportsPositionsInLongQueues() {
+        service.addBook(new Book("9781234567890", "Title", "Author", 2023, "Fiction"), 1);
+        service.addMember(new Member("MEM-0", "Holder", "holder@example.com", MemberType.STUDENT));
+        service.loanByIsbn("9781234567890", "MEM-0");
+        List<String> queued = new ArrayList<>();
+        for (int i = 1; i <= 60; i++) {
+            service.addMember(new Member("MEM-" + i, "Member " + i, "m" + i + "@example.com", MemberType.STUDENT));
+            queued.add(service.reserveByIsbn("9781234567890", "MEM-" + i).getReservationId());
+        }
+        for (int i = queued.size() - 1; i >= 0; i -= 3) {
+            service.removeReservation(queued.remove(i));
+        }
+
+        for (int i = 0; i < queued.size(); i++) {
+            assertEquals(i + 1, service.getQueuePosition(queued.get(i)));
+        }
+    }
+
     @Test
     void removeBook_failsWithActiveLoan() {
         Book book = new Book("9781234567890", "Title", "Author", 2023, "Fiction");
@@ -253,6 +579,16 @@ class LibraryServiceTest {
         assertTrue(foundById);
     }
 
+    @Test
+    void searchMembers_matchesNonAsciiNamesWithTypos() {
+        service.addMember(new Member("MEM-1", "Sanna J\u00e4rvinen", "s@example.com", MemberType.ADULT));
+        service.addMember(new Member("MEM-2", "Olli Laine", "o@example.com", MemberType.ADULT));
+
+        List<Member> results = service.searchMembers("J\u00e4rvnen");
+        assertEquals(1, results.size());
+        assertEquals("MEM-1", results.get(0).getMemberId());
+    }
+
     @Test
     void removeReservation_releasesReservedCopyWhenReady() {
         Book book = new Book("9781234567890", "Title", "Author", 2023, "Fiction");
@@ -1,16 +1,25 @@
 package lms.storage;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
 import lms.model.Book;
 import lms.model.BookCopy;
 import lms.model.CopyStatus;
 import lms.model.Member;
 import lms.model.MemberType;
+import lms.exception.StorageException;
 import lms.storage.file.FileStorage;
+import lms.storage.file.FileStorageSettings;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class FileStorageTest {
@@ -30,4 +39,182 @@ class FileStorageTest {
         assertEquals(1, reload.copies().findAll().size());
         assertEquals(1, reload.members().findAll().size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void transaction_rewritesOnlyChangedFiles() throws Exception {
+        FileStorage storage = new FileStorage(tempDir.toString());
+        storage.books().save(new Book("9781234567890", "Title", "Author", 2023, "Fiction"));
+        Files.delete(tempDir.resolve("books.json"));
+
+        storage.runInTransaction(() ->
+                storage.members().save(new Member("M1", "Alice", "a@example.com", MemberType.STUDENT)));
+
+        assertTrue(Files.exists(tempDir.resolve("members.json")));
+        assertFalse(Files.exists(tempDir.resolve("books.json")));
+        assertFalse(Files.exists(tempDir.resolve("loans.json")));
+    }
+
+    @Test
+    void transaction_rollsBackTouchedKeys() {
+        FileStorage storage = new FileStorage(tempDir.toString());
+        Member alice = new Member("M1", "Alice", "a@example.com", MemberType.STUDENT);
+        Member bob = new Member("M2", "Bob", "b@example.com", MemberType.ADULT);
+        storage.members().save(alice);
+        storage.members().save(bob);
+
+        assertThrows(IllegalStateException.class, () -> storage.runInTransaction(() -> {
+            storage.members().save(new Member("M2", "Bob Replaced", "b@example.com", MemberType.STUDENT));
+            storage.members().deleteById("M1");
+            storage.members().save(new Member("M3", "Carol", "c@example.com", MemberType.ADULT));
+            storage.members().save(new Member("M1", "Alice Again", "a@example.com", MemberType.STUDENT));
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals(List.of("M1", "M2"), storage.members().findAll().stream()
+                .map(Member::getMemberId)
+                .collect(Collectors.toList()));
+        assertEquals("Bob", storage.members().findById("M2").get().getName());
+        assertEquals("Alice", storage.members().findById("M1").get().getName());
+        assertFalse(storage.members().existsById("M3"));
+    }
+
+    @Test
+    void journaledStorage_replaysMutationsOnStartup() {
+        FileStorage storage = new FileStorage(tempDir.toString(), journaled());
+        Book book = new Book("9781234567890", "Title", "Author", 2023, "Fiction");
+        storage.books().save(book);
+        storage.copies().save(new BookCopy("C1", book.getIsbn(), CopyStatus.AVAILABLE));
+        storage.copies().save(new BookCopy("C2", book.getIsbn(), CopyStatus.AVAILABLE));
+        storage.copies().deleteById("C2");
+        storage.close();
+
+        assertFalse(Files.exists(tempDir.resolve("books.json")));
+        FileStorage reload = new FileStorage(tempDir.toString(), journaled());
+        assertTrue(reload.books().findById("9781234567890").isPresent());
+        assertEquals(1, reload.copies().findAll().size());
+        reload.close();
+    }
+
+    @Test
+    void journaledStorage_skipsRolledBackTransactions() {
+        FileStorage storage = new FileStorage(tempDir.toString(), journaled());
+        storage.members().save(new Member("M1", "Alice", "a@example.com", MemberType.STUDENT));
+        assertThrows(IllegalStateException.class, () -> storage.runInTransaction(() -> {
+            storage.members().save(new Member("M2", "Bob", "b@example.com", MemberType.ADULT));
+            throw new IllegalStateException("boom");
+        }));
+        storage.close();
+
+        FileStorage reload = new FileStorage(tempDir.toString(), journaled());
+        assertEquals(1, reload.members().findAll().size());
+        reload.close();
+    }
+
+    @Test
+    void journaledStorage_rollsBackWhenAppendFails() throws Exception {
+        FileStorage storage = new FileStorage(tempDir.toString(), journaled());
+        Files.createDirectories(tempDir.resolve("journal.log"));
+        assertThrows(StorageException.class, () -> storage.runInTransaction(() -> {
+            storage.members().save(new Member("M1", "Alice", "a@example.com", MemberType.STUDENT));
+            return null;
+        }));
+        assertFalse(storage.members().existsById("M1"));
+
+        Files.delete(tempDir.resolve("journal.log"));
+        storage.runInTransaction(() -> {
+            storage.members().save(new Member("M2", "Bob", "b@example.com", MemberType.ADULT));
+            return null;
+        });
+        storage.close();
+
+        FileStorage reload = new FileStorage(tempDir.toString(), journaled());
+        assertEquals(List.of("M2"), reload.members().findAll().stream()
+                .map(Member::getMemberId)
+                .collect(Collectors.toList()));
+        reload.close();
+    }
+
+    @Test
+    void journaledStorage_ignoresTornTrailingEntry() throws Exception {
+        FileStorage storage = new FileStorage(tempDir.toString(), journaled());
+        storage.members().save(new Member("M1", "Alice", "a@example.com", MemberType.STUDENT));
+        storage.close();
+        Files.write(tempDir.resolve("journal.log"), "[{\"repository\":\"members.json\"".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        FileStorage reload = new FileStorage(tempDir.toString(), journaled());
+        assertEquals(1, reload.members().findAll().size());
+        reload.members().save(new Member("M2", "Bob", "b@example.com", MemberType.ADULT));
+        reload.close();
+
+        FileStorage again = new FileStorage(tempDir.toString(), journaled());
+        assertEquals(2, again.members().findAll().size());
+        again.close();
+    }
+
+    @Test
+    void plainStorage_compactsLeftoverJournal() {
+        FileStorage storage = new FileStorage(tempDir.toString(), journaled());
+        storage.members().save(new Member("M1", "Alice", "a@example.com", MemberType.STUDENT));
+        storage.close();
+
+        FileStorage plain = new FileStorage(tempDir.toString());
+        assertEquals(1, plain.members().findAll().size());
+        assertTrue(Files.exists(tempDir.resolve("members.json")));
+        assertEquals(0, tempDir.resolve("journal.log").toFile().length());
+    }
+
+    @Test
+    void fileStorage_reportsMalformedRecord() throws Exception {
+        Files.write(tempDir.resolve("members.json"), ("[\n"
+                + "  {\"id\":\"M1\",\"name\":\"Alice\",\"email\":\"a@example.com\",\"type\":\"STUDENT\"},\n"
+                + "  {\"id\":\"M2\",\"name\":\"Bob\",\"email\":\"b@example.com\",\"type\":\"UNKNOWN\"}\n"
+                + "]").getBytes(StandardCharsets.UTF_8));
+
+        StorageException ex = assertThrows(StorageException.class, () -> new FileStorage(tempDir.toString()));
+        assertTrue(ex.getMessage().contains("record 2 in members.json"));
+    }
+
+    @Test
+    void fileStorage_reopensEmptiedRepositories() throws Exception {
+        FileStorage storage = new FileStorage(tempDir.toString());
+        storage.members().save(new Member("M1", "Alice", "a@example.com", MemberType.STUDENT));
+        storage.members().deleteById("M1");
+        Files.write(tempDir.resolve("books.json"), "[]".getBytes(StandardCharsets.UTF_8));
+
+        FileStorage reload = new FileStorage(tempDir.toString());
+        assertTrue(reload.members().findAll().isEmpty());
+        assertTrue(reload.books().findAll().isEmpty());
+    }
+
+    @Test
+    void fileStorage_rejectsContentAfterRecords() throws Exception {
+        Files.write(tempDir.resolve("members.json"), "[] []".getBytes(StandardCharsets.UTF_8));
+
+        StorageException ex = assertThrows(StorageException.class, () -> new FileStorage(tempDir.toString()));
+        assertTrue(ex.getMessage().contains("after records in members.json"));
+    }
+
+    @Test
+    void groupCommit_flushesQueuedWritesOnBarrierAndClose() {
+        FileStorageSettings settings = new FileStorageSettings();
+        settings.setGroupCommitIntervalMillis(60_000);
+        settings.setGroupCommitMaxMutations(1_000);
+        FileStorage storage = new FileStorage(tempDir.toString(), settings);
+        for (int i = 0; i < 50; i++) {
+            storage.members().save(new Member("M" + i, "Member " + i, "m" + i + "@example.com", MemberType.ADULT));
+        }
+        storage.flush();
+        assertEquals(50, new FileStorage(tempDir.toString()).members().findAll().size());
+
+        storage.books().save(new Book("9781234567890", "Title", "Author", 2023, "Fiction"));
+        storage.close();
+        assertTrue(new FileStorage(tempDir.toString()).books().existsById("9781234567890"));
+    }
+
+    private FileStorageSettings journaled() {
+        FileStorageSettings settings = new FileStorageSettings();
+        settings.setJournalEnabled(true);
+        return settings;
+    }
+}
@@ -0,0 +1,333 @@
+package lms.storage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lms.model.Book;
+import lms.model.BookCopy;
+import lms.model.CopyStatus;
+import lms.model.Loan;
+import lms.model.Member;
+import lms.model.MemberType;
+import lms.storage.query.LoanFields;
+import lms.storage.query.MemberFields;
+import lms.storage.query.Page;
+import lms.storage.query.Query;
+import lms.storage.sqlite.SqliteSettings;
+import lms.storage.sqlite.SqliteStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqliteStorageTest {
+    @TempDir
+    Path tempDir;
+
+    private SqliteStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new SqliteStorage(tempDir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    @Test
+    void sqliteStorage_persistsEntities() {
+        Book book = new Book("9781234567890", "Title", "Author", 2023, "Fiction");
+        storage.books().save(book);
+        storage.copies().save(new BookCopy("C1", book.getIsbn(), CopyStatus.AVAILABLE));
+        storage.members().save(new Member("M1", "Alice", "a@example.com", MemberType.STUDENT));
+        storage.loans().save(new Loan("L1", "C1", "M1", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 15)));
+        storage.close();
+
+        storage = new SqliteStorage(tempDir.toString());
+        assertTrue(storage.books().findById("9781234567890").isPresent());
+        assertEquals(1, storage.copies().findAll().size());
+        assertEquals("M1", storage.loans().findById("L1").get().getMemberId());
+    }
+
+    @Test
+    void transaction_rollsBackOnFailure() {
+        storage.members().save(new Member("M1", "Alice", "a@example.com", MemberType.STUDENT));
+
+        assertThrows(IllegalStateException.class, () -> storage.runInTransaction(() -> {
+            storage.members().save(new Member("M2", "Bob", "b@example.com", MemberType.ADULT));
+            assertTrue(storage.members().existsById("M2"));
+            throw new IllegalStateException("boom");
+        }));
+
+        assertFalse(storage.members().existsById("M2"));
+        assertEquals(1, storage.members().findAll().size());
+    }
+
+    @Test
+    void pooledConnections_serveRepeatedLookups() {
+        storage.members().save(new Member("M1", "Alice", "a@example.com", MemberType.STUDENT));
+        for (int i = 0; i < 200; i++) {
+            assertTrue(storage.members().findById("M1").isPresent());
+        }
+    }
+
+    @Test
+    void repeatedLookups_reuseCachedStatements() {
+        storage.members().save(new Member("M1", "Alice", "a@example.com", MemberType.STUDENT));
+        long missesBefore = storage.getStatementCacheMisses();
+        long hitsBefore = storage.getStatementCacheHits();
+        for (int i = 0; i < 50; i++) {
+            assertTrue(storage.members().findById("M1").isPresent());
+        }
+        assertTrue(storage.getStatementCacheHits() - hitsBefore >= 47);
+        assertTrue(storage.getStatementCacheMisses() - missesBefore <= 3);
+    }
+
+    @Test
+    void generatedQueries_shareCachedStatementsAcrossSizes() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            ids.add("M" + i);
+            storage.members().save(new Member("M" + i, "Member " + i, "m" + i + "@example.com", MemberType.ADULT));
+        }
+        long missesBefore = storage.getStatementCacheMisses();
+        for (int n = 1; n <= ids.size(); n++) {
+            assertEquals(n, storage.members().findAllById(ids.subList(0, n)).size());
+            assertEquals(n, storage.members().findBy(Query.<Member>all().limit(n)).size());
+        }
+        assertTrue(storage.getStatementCacheMisses() - missesBefore <= 6);
+    }
+
+    @Test
+    void defaultSettings_useWriteAheadLog() {
+        storage.members().save(new Member("M1", "Alice", "a@example.com", MemberType.STUDENT));
+
+        assertTrue(Files.exists(tempDir.resolve("lms.db-wal")));
+    }
+
+    @Test
+    void freshDatabase_isMigratedToLatestSchema() throws SQLException {
+        storage.close();
+        try (Connection connection = openDatabase(); Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("PRAGMA user_version")) {
+                assertEquals(5, rs.getInt(1));
+            }
+            Set<String> indexes = new HashSet<>();
+            try (ResultSet rs = statement.executeQuery("SELECT name FROM sqlite_master WHERE type = 'index'")) {
+                while (rs.next()) {
+                    indexes.add(rs.getString(1));
+                }
+            }
+            assertTrue(indexes.containsAll(Set.of("idx_copies_isbn_status", "idx_loans_member_return",
+                    "idx_loans_copy", "idx_reservations_isbn_status_created", "idx_loans_open_due")));
+        }
+        storage = new SqliteStorage(tempDir.toString());
+    }
+
+    @Test
+    void legacyDatabase_gainsBookIdColumn() throws Exception {
+        storage.close();
+        Files.deleteIfExists(tempDir.resolve("lms.db"));
+        Files.deleteIfExists(tempDir.resolve("lms.db-wal"));
+        Files.deleteIfExists(tempDir.resolve("lms.db-shm"));
+        try (Connection connection = openDatabase(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE books (isbn TEXT PRIMARY KEY, title TEXT NOT NULL, "
+                    + "author TEXT NOT NULL, year INTEGER, genre TEXT, total_loans INTEGER DEFAULT 0)");
+            statement.execute("INSERT INTO books (isbn, title, author, year, genre) "
+                    + "VALUES ('9781234567890', 'Title', 'Author', 2023, 'Fiction')");
+        }
+
+        storage = new SqliteStorage(tempDir.toString());
+        Book book = storage.books().findById("9781234567890").orElseThrow();
+        book.setBookId("B1");
+        storage.books().save(book);
+
+        assertEquals("B1", storage.books().findById("9781234567890").get().getBookId());
+        assertEquals(1, storage.books().findByText("title", 10).get().size());
+    }
+
+    @Test
+    void failedSearchIndexSetup_dropsPartialIndexesAndRetriesOnReopen() throws Exception {
+        storage.close();
+        Files.deleteIfExists(tempDir.resolve("lms.db"));
+        Files.deleteIfExists(tempDir.resolve("lms.db-wal"));
+        Files.deleteIfExists(tempDir.resolve("lms.db-shm"));
+        try (Connection connection = openDatabase(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE members_fts (unrelated TEXT)");
+        }
+
+        storage = new SqliteStorage(tempDir.toString());
+        storage.members().save(new Member("M1", "Alice", "a@example.com", MemberType.STUDENT));
+
+        try (Connection connection = openDatabase(); Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM sqlite_master WHERE name LIKE '%fts%'")) {
+            assertEquals(0, rs.getInt(1));
+        }
+        assertFalse(storage.members().findByText("alice", 10).isPresent());
+        assertFalse(storage.books().findByText("title", 10).isPresent());
+
+        storage.close();
+        storage = new SqliteStorage(tempDir.toString());
+        assertEquals(1, storage.members().findByText("alice", 10).orElseThrow().size());
+    }
+
+    private Connection openDatabase() throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + tempDir.resolve("lms.db"));
+    }
+
+    @Test
+    void queries_filterOrderAndCountInSql() {
+        storage.loans().save(new Loan("L1", "C1", "M1", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 10)));
+        storage.loans().save(new Loan("L2", "C2", "M1", LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 5)));
+        storage.loans().save(new Loan("L3", "C3", "M2", LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 20)));
+        Loan returned = new Loan("L4", "C4", "M1", LocalDate.of(2024, 1, 4), LocalDate.of(2024, 1, 6));
+        returned.setReturnDate(LocalDate.of(2024, 1, 5));
+        storage.loans().save(returned);
+
+        List<Loan> overdue = storage.loans().findBy(Query.<Loan>all()
+                .isNull(LoanFields.RETURN_DATE)
+                .lessThan(LoanFields.DUE_DATE, LocalDate.of(2024, 1, 15))
+                .orderBy(LoanFields.DUE_DATE));
+        assertEquals(List.of("L2", "L1"), overdue.stream().map(Loan::getLoanId).collect(Collectors.toList()));
+
+        assertEquals(2, storage.loans().count(Query.<Loan>all()
+                .eq(LoanFields.MEMBER_ID, "M1")
+                .isNull(LoanFields.RETURN_DATE)));
+        assertEquals("L3", storage.loans().findFirst(Query.<Loan>all()
+                .orderByDescending(LoanFields.LOAN_DATE)
+                .isNull(LoanFields.RETURN_DATE)).get().getLoanId());
+        assertTrue(storage.loans().exists(Query.<Loan>all().in(LoanFields.COPY_ID, List.of("C9", "C4"))));
+    }
+
+    @Test
+    void batchWrites_saveAndDeleteTogether() {
+        Book book = new Book("9781234567890", "Title", "Author", 2023, "Fiction");
+        storage.books().save(book);
+        List<BookCopy> copies = List.of(
+                new BookCopy("C1", book.getIsbn(), CopyStatus.AVAILABLE),
+                new BookCopy("C2", book.getIsbn(), CopyStatus.AVAILABLE),
+                new BookCopy("C3", book.getIsbn(), CopyStatus.LOST));
+        storage.copies().saveAll(copies);
+        assertEquals(3, storage.copies().findAll().size());
+
+        storage.copies().deleteAllById(List.of("C1", "C3"));
+        assertEquals(List.of("C2"), storage.copies().findAll().stream()
+                .map(BookCopy::getCopyId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void forEach_streamsRowsAndAllowsNestedLookups() {
+        storage.close();
+        SqliteSettings settings = new SqliteSettings();
+        settings.setReaderConnections(1);
+        storage = new SqliteStorage(tempDir.toString(), settings);
+        storage.members().save(new Member("M1", "Alice", "a@example.com", MemberType.STUDENT));
+        for (int i = 0; i < 5; i++) {
+            storage.loans().save(new Loan("L" + i, "C" + i, "M1", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 15)));
+        }
+
+        List<String> names = new ArrayList<>();
+        storage.loans().forEach(loan -> names.add(storage.members().findById(loan.getMemberId()).get().getName()));
+        assertEquals(5, names.size());
+
+        List<String> ids = new ArrayList<>();
+        storage.loans().forEach(Query.<Loan>all().orderByDescending(LoanFields.LOAN_ID).limit(2),
+                loan -> ids.add(loan.getLoanId()));
+        assertEquals(List.of("L4", "L3"), ids);
+    }
+
+    @Test
+    void findPage_walksKeysInOrder() {
+        for (int i = 5; i >= 1; i--) {
+            storage.members().save(new Member("M" + i, "Member " + i, "m" + i + "@example.com", MemberType.STUDENT));
+        }
+
+        Page<Member> first = storage.members().findPage(MemberFields.MEMBER_ID, null, 2);
+        assertEquals(List.of("M1", "M2"), first.getItems().stream()
+                .map(Member::getMemberId).collect(Collectors.toList()));
+        assertTrue(first.hasNext());
+
+        Page<Member> last = storage.members().findPage(MemberFields.MEMBER_ID, "M4", 2);
+        assertEquals(List.of("M5"), last.getItems().stream()
+                .map(Member::getMemberId).collect(Collectors.toList()));
+        assertFalse(last.hasNext());
+        assertThrows(IllegalArgumentException.class, () -> storage.members().findPage(MemberFields.MEMBER_ID, null, 0));
+    }
+
+    @Test
+    void findFirstAndFindPage_leaveCallerQueryUntouched() {
+        storage.members().save(new Member("M1", "Alice", "a@example.com", MemberType.STUDENT));
+        storage.members().save(new Member("M2", "Alina", "b@example.com", MemberType.STUDENT));
+        storage.members().save(new Member("M3", "Bob", "c@example.com", MemberType.ADULT));
+
+        Query<Member> query = Query.<Member>all().containsIgnoreCase(MemberFields.NAME, "ALI");
+        assertTrue(storage.members().findFirst(query).isPresent());
+        storage.members().findPage(query, MemberFields.MEMBER_ID, null, 1);
+
+        assertEquals(2, storage.members().findBy(query).size());
+        assertEquals(List.of("M3"), storage.members().findBy(Query.<Member>all().eqIgnoreCase(MemberFields.NAME, "bob"))
+                .stream().map(Member::getMemberId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void textSearch_tracksSavesAndDeletes() {
+        storage.books().save(new Book("9781234567890", "The Hobbit", "Tolkien", 1937, "Fantasy"));
+        storage.books().save(new Book("9780000000001", "Dune", "Herbert", 1965, "Science Fiction"));
+
+        List<Book> hits = storage.books().findByText("hobit", 10).get();
+        assertEquals(List.of("9781234567890"), hits.stream().map(Book::getIsbn).collect(Collectors.toList()));
+
+        Book renamed = storage.books().findById("9781234567890").get();
+        renamed.setTitle("Silmarillion");
+        storage.books().save(renamed);
+        assertTrue(storage.books().findByText("hobbit", 10).get().isEmpty());
+        assertEquals("9781234567890", storage.books().findByText("silmarillion", 10).get().get(0).getIsbn());
+
+        storage.books().deleteById("9781234567890");
+        assertTrue(storage.books().findByText("marill", 10).get().isEmpty());
+        assertFalse(storage.books().findByText("ab", 10).isPresent());
+
+        storage.members().save(new Member("M1", "Alice Liddell", "alice@example.com", MemberType.STUDENT));
+        assertEquals("M1", storage.members().findByText("liddel", 10).get().get(0).getMemberId());
+
+        String dostoevsky = "\u0414\u043e\u0441\u0442\u043e\u0435\u0432\u0441\u043a\u0438\u0439";
+        storage.members().save(new Member("M2", dostoevsky, "fd@example.com", MemberType.ADULT));
+        String typo = dostoevsky.substring(0, dostoevsky.length() - 1).toLowerCase();
+        assertEquals("M2", storage.members().findByText(typo, 10).get().get(0).getMemberId());
+    }
+
+    @Test
+    void findAllById_loadsChunksAndSkipsMissingIds() {
+        List<Member> saved = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            saved.add(new Member("M" + i, "Member " + i, "m" + i + "@example.com", MemberType.STUDENT));
+            ids.add("M" + i);
+        }
+        storage.members().saveAll(saved);
+        ids.add("missing");
+        ids.add("M1");
+
+        Map<String, Member> found = storage.members().findAllById(ids);
+        assertEquals(1200, found.size());
+        assertEquals("Member 1199", found.get("M1199").getName());
+    }
+}